@@ -0,0 +1,89 @@
+package blocks;
+
+import blocks.BlockShapes.Cell;
+import blocks.BlockShapes.Piece;
+import blocks.BlockShapes.Shape;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+// shared fixtures for the benchmarks: model factories and reproducible partially filled boards
+public class BenchmarkBoards {
+    static final long seed = 42L;
+    static final Shape single = new Shape(List.of(new Cell(0, 0)));
+    static final Shape line = new Shape(List.of(new Cell(0, 0), new Cell(1, 0), new Cell(2, 0)));
+
+    static ModelInterface createModel(String model) {
+        return switch (model) {
+            case "set" -> new ModelSet();
+            case "2dArray" -> new Model2dArray();
+            case "bitboard" -> new ModelBitboard();
+            default -> throw new IllegalArgumentException("Unknown model: " + model);
+        };
+    }
+
+    static ModelStrategy createStrategy(ModelInterface model) {
+        if (model instanceof ModelSet modelSet) return new StrategySet(modelSet);
+        if (model instanceof Model2dArray model2dArray) return new Strategy2dArray(model2dArray);
+        if (model instanceof ModelBitboard modelBitboard) return new StrategyBitboard(modelBitboard);
+        throw new IllegalArgumentException("No strategy for " + model.getClass().getSimpleName());
+    }
+
+    static double fillFraction(String fill) {
+        return switch (fill) {
+            case "empty" -> 0.0;
+            case "30" -> 0.3;
+            case "60" -> 0.6;
+            case "nearDead" -> 0.85;
+            default -> throw new IllegalArgumentException("Unknown fill level: " + fill);
+        };
+    }
+
+    // fill the board with single cells in a seeded random order, skipping any cell that would pop a region
+    // so every model sees exactly the same board for the same fill level
+    static void fill(ModelInterface model, String fill) {
+        BoardGeometry geometry = model.getGeometry();
+        int target = (int) (fillFraction(fill) * geometry.cells());
+        List<Cell> cells = new ArrayList<>();
+        for (int x = 0; x < geometry.width(); x++) {
+            for (int y = 0; y < geometry.height(); y++) {
+                cells.add(new Cell(x, y));
+            }
+        }
+        Collections.shuffle(cells, new Random(seed));
+        int placed = 0;
+        for (Cell cell : cells) {
+            if (placed >= target) break;
+            Piece piece = new Piece(single, cell);
+            if (model.canPlace(piece) && model.getPoppableRegions(piece).isEmpty()) {
+                model.place(piece);
+                placed++;
+            }
+        }
+    }
+
+    // leave the top row one line piece short of complete so that placing line at (0, 0) pops it
+    // the second row is cleared so that filling the top row cannot complete a column or sub-square
+    static void primeRowPop(ModelInterface model) {
+        RegionHelper regionHelper = new RegionHelper();
+        model.remove(regionHelper.rowShape(0));
+        model.remove(regionHelper.rowShape(1));
+        for (int x = line.size(); x < ModelInterface.width; x++) {
+            Piece piece = new Piece(single, new Cell(x, 0));
+            if (model.canPlace(piece)) model.place(piece);
+        }
+    }
+
+    // a fixed palette of three shapes drawn from the ShapeSet
+    static List<Shape> palette() {
+        List<Shape> shapes = new BlockShapes.ShapeSet().getShapes();
+        Random random = new Random(seed);
+        List<Shape> palette = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            palette.add(shapes.get(random.nextInt(shapes.size())));
+        }
+        return palette;
+    }
+}
@@ -0,0 +1,80 @@
+package blocks;
+
+import blocks.BlockShapes.Sprite;
+import blocks.BlockShapes.SpriteState;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// frame times for one drag across the board, painting into an offscreen image
+// full: every layer drawn on every frame over the whole view, as before the layer cache
+// layered: the cached board image blitted, still over the whole view
+// dirty: the cached board image, clipped to the old and new drag areas as repaintDrag asks for
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+@State(Scope.Thread)
+public class GameViewBenchmark {
+    static final int traceLength = 64;
+
+    @Param({"full", "layered", "dirty"})
+    String mode;
+
+    @Param({"set", "2dArray", "bitboard"})
+    String model;
+
+    GameView view;
+    Sprite sprite;
+    BufferedImage screen;
+    // the sprite positions of the drag, a zigzag over the grid
+    final List<Point> trace = new ArrayList<>();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ModelInterface board = BenchmarkBoards.createModel(model);
+        BenchmarkBoards.fill(board, "30");
+        Palette palette = new Palette(new Random(BenchmarkBoards.seed));
+        view = new GameView(board, palette);
+        view.cacheLayers = !mode.equals("full");
+        palette.doLayout(view.margin, view.margin + view.geometry.height() * view.cellSize, view.paletteCellSize);
+        sprite = palette.getSprites().get(0);
+        sprite.state = SpriteState.IN_PLAY;
+        Dimension size = view.getPreferredSize();
+        view.setSize(size);
+        screen = new BufferedImage(size.width, size.height, BufferedImage.TYPE_INT_RGB);
+        int span = view.geometry.width() * view.cellSize;
+        for (int i = 0; i < traceLength; i++) {
+            int x = view.margin + (i * 7 * span / traceLength) % span;
+            int y = view.margin + i * span / traceLength;
+            trace.add(new Point(x, y));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(traceLength)
+    public BufferedImage drag() {
+        Rectangle previous = null;
+        for (Point point : trace) {
+            sprite.px = point.x;
+            sprite.py = point.y;
+            Graphics2D g = screen.createGraphics();
+            if (mode.equals("dirty")) {
+                // the repaint manager merges the two repaint calls into their union
+                Rectangle bounds = view.getDragBounds();
+                g.setClip(previous == null ? bounds : previous.union(bounds));
+                previous = bounds;
+            }
+            view.paint(g);
+            g.dispose();
+        }
+        return screen;
+    }
+}
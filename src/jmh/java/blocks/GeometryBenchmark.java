@@ -0,0 +1,75 @@
+package blocks;
+
+import blocks.BlockShapes.Cell;
+import blocks.BlockShapes.Piece;
+import blocks.BlockShapes.Shape;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// how the long[] model scales with the size of the board: the same number of random candidate
+// pieces is checked on every size, so the time per call should stay flat for canPlace and
+// getPoppableRegions, while isGameOver may have to look at every anchor
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class GeometryBenchmark {
+    static final int nCandidates = 256;
+
+    @Param({"9", "12", "16", "25"})
+    int size;
+
+    @Param({"30", "60"})
+    String fill;
+
+    ModelWords board;
+    List<Shape> palette;
+    List<Piece> candidates;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        board = new ModelWords(BoardGeometry.of(size));
+        BenchmarkBoards.fill(board, fill);
+        palette = BenchmarkBoards.palette();
+        Random random = new Random(BenchmarkBoards.seed);
+        candidates = new ArrayList<>();
+        for (int i = 0; i < nCandidates; i++) {
+            candidates.add(new Piece(palette.get(i % palette.size()), new Cell(random.nextInt(size), random.nextInt(size))));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(nCandidates)
+    public void canPlace(Blackhole bh) {
+        for (Piece piece : candidates) {
+            bh.consume(board.canPlace(piece));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(nCandidates)
+    public void getPoppableRegions(Blackhole bh) {
+        for (Piece piece : candidates) {
+            bh.consume(board.getPoppableRegions(piece));
+        }
+    }
+
+    @Benchmark
+    public boolean isGameOver() {
+        return board.isGameOver(palette);
+    }
+
+    // a full game of the random strategy, from an empty board
+    @Benchmark
+    public int selfPlayGame() {
+        return SelfPlay.forModel("words" + size).playGame(BenchmarkBoards.seed).score();
+    }
+}
@@ -0,0 +1,141 @@
+package blocks;
+
+import blocks.BlockShapes.Cell;
+import blocks.BlockShapes.Piece;
+import blocks.BlockShapes.Shape;
+import blocks.PlacementTable.Placement;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ModelBenchmark {
+
+    @Param({"set", "2dArray", "bitboard"})
+    String model;
+
+    @Param({"empty", "30", "60", "nearDead"})
+    String fill;
+
+    ModelInterface board;
+    List<Shape> palette;
+    // every in-bounds placement of the palette shapes, legal or not
+    List<Piece> candidates;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        board = BenchmarkBoards.createModel(model);
+        BenchmarkBoards.fill(board, fill);
+        palette = BenchmarkBoards.palette();
+        candidates = new ArrayList<>();
+        for (Shape shape : palette) {
+            for (Placement placement : PlacementTable.getShared().placements(shape)) {
+                candidates.add(new Piece(shape, placement.anchor()));
+            }
+        }
+    }
+
+    @Benchmark
+    public void canPlace(Blackhole bh) {
+        for (Piece piece : candidates) {
+            bh.consume(board.canPlace(piece));
+        }
+    }
+
+    @Benchmark
+    public void getPoppableRegions(Blackhole bh) {
+        for (Piece piece : candidates) {
+            bh.consume(board.getPoppableRegions(piece));
+        }
+    }
+
+    @Benchmark
+    public void getPoppableCells(Blackhole bh) {
+        for (Piece piece : candidates) {
+            bh.consume(board.getPoppableCells(piece));
+        }
+    }
+
+    // every move of the palette shapes and what it pops, one canPlace and getPoppableRegions per anchor ...
+    @Benchmark
+    public int anchorsOneByOne() {
+        int pops = 0;
+        for (Piece piece : candidates) {
+            if (board.canPlace(piece)) pops += board.getPoppableRegions(piece).size();
+        }
+        return pops;
+    }
+
+    // ... and the same from one batch call per shape
+    @Benchmark
+    public int anchorPopCounts() {
+        int pops = 0;
+        for (Shape shape : palette) {
+            for (int count : board.getAnchorPopCounts(shape)) {
+                if (count > 0) pops += count;
+            }
+        }
+        return pops;
+    }
+
+    @Benchmark
+    public boolean isGameOver() {
+        return board.isGameOver(palette);
+    }
+
+    @Benchmark
+    public Object getOccupiedCells() {
+        return board.getOccupiedCells();
+    }
+
+    // place needs a fresh board every call, so it gets its own per-invocation state
+    @State(Scope.Thread)
+    public static class PlaceState {
+        @Param({"set", "2dArray", "bitboard"})
+        String model;
+
+        @Param({"empty", "30", "60", "nearDead"})
+        String fill;
+
+        ModelInterface board;
+        Piece noPop;
+        Piece pop;
+
+        @Setup(Level.Invocation)
+        public void setUp() {
+            board = BenchmarkBoards.createModel(model);
+            BenchmarkBoards.fill(board, fill);
+            BenchmarkBoards.primeRowPop(board);
+            pop = new Piece(BenchmarkBoards.line, new Cell(0, 0));
+            noPop = null;
+            for (Placement placement : PlacementTable.getShared().placements(BenchmarkBoards.single)) {
+                Piece piece = new Piece(BenchmarkBoards.single, placement.anchor());
+                if (board.canPlace(piece) && board.getPoppableRegions(piece).isEmpty()) {
+                    noPop = piece;
+                    break;
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public int placeWithoutPop(PlaceState state) {
+        if (state.noPop != null) state.board.place(state.noPop);
+        return state.board.getScore();
+    }
+
+    @Benchmark
+    public int placeWithPop(PlaceState state) {
+        state.board.place(state.pop);
+        return state.board.getScore();
+    }
+}
@@ -0,0 +1,74 @@
+package blocks;
+
+import blocks.BlockShapes.Cell;
+import blocks.BlockShapes.Piece;
+import blocks.BlockShapes.Sprite;
+import blocks.BlockShapes.SpriteState;
+import org.openjdk.jol.info.GraphLayout;
+
+import java.util.Random;
+
+/**
+ * Bytes per live model, measured with JOL.
+ * <p>
+ * For each model, many games are held at once and the object graph of all of them is walked,
+ * so tables shared between games are only counted once and the figure per game is what each
+ * extra game costs. The single-model size counts everything one model reaches, shared or not.
+ * <p>
+ * usage: java -cp target/benchmarks.jar blocks.ModelFootprint [games] [moves] [model to break down]
+ */
+public class ModelFootprint {
+    static final String[] models = {"set", "2dArray", "bitboard", "words"};
+
+    // a model that has played up to the given number of moves of a seeded bot game
+    static ModelInterface played(String name, long seed, int moves) {
+        SelfPlay selfPlay = SelfPlay.forModel(name);
+        Random random = new Random(seed);
+        ModelInterface model = selfPlay.modelFactory.get();
+        Palette palette = new Palette(random);
+        ModelStrategy strategy = selfPlay.strategyFactory.create(model, palette, random);
+        for (int move = 0; move < moves && !model.isGameOver(palette.getShapesToPlace()); move++) {
+            for (Sprite sprite : palette.getSprites()) {
+                if (sprite.state != SpriteState.IN_PALETTE) continue;
+                Cell anchor = strategy.getValidStartingPoint(sprite.shape);
+                if (anchor == null) continue;
+                model.place(new Piece(sprite.shape, anchor));
+                sprite.state = SpriteState.PLACED;
+                break;
+            }
+            palette.replenish();
+        }
+        return model;
+    }
+
+    // the size of the objects reachable from all the games, less the array holding them, per game
+    static long bytesPerGame(Object[] games) {
+        return (GraphLayout.parseInstance((Object) games).totalSize() - GraphLayout.parseInstance((Object) new Object[games.length]).totalSize()) / games.length;
+    }
+
+    public static void main(String[] args) {
+        int nGames = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int moves = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+        System.out.printf("%-10s %14s %14s %16s %16s%n", "model", "one new", "per new game", "one played", "per played game");
+        for (String name : models) {
+            ModelInterface[] fresh = new ModelInterface[nGames];
+            ModelInterface[] played = new ModelInterface[nGames];
+            for (int i = 0; i < nGames; i++) {
+                fresh[i] = SelfPlay.forModel(name).modelFactory.get();
+                played[i] = played(name, SelfPlay.gameSeed(42L, i), moves);
+            }
+            System.out.printf("%-10s %14d %14d %16d %16d%n", name,
+                    GraphLayout.parseInstance(fresh[0]).totalSize(), bytesPerGame(fresh),
+                    GraphLayout.parseInstance(played[0]).totalSize(), bytesPerGame(played));
+        }
+        Palette[] palettes = new Palette[nGames];
+        for (int i = 0; i < nGames; i++) palettes[i] = new Palette(new Random(i));
+        System.out.printf("%-10s %14d %14d%n", "palette", GraphLayout.parseInstance(palettes[0]).totalSize(), bytesPerGame(palettes));
+
+        // the classes making up one played model, as JOL's footprint table
+        if (args.length > 2) {
+            System.out.println();
+            System.out.println(GraphLayout.parseInstance(played(args[2], SelfPlay.gameSeed(42L, 0), moves)).toFootprint());
+        }
+    }
+}
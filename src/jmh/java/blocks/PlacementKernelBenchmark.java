@@ -0,0 +1,54 @@
+package blocks;
+
+import blocks.BlockShapes.Shape;
+import blocks.PlacementKernel.Batch;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// every placement of a three-shape palette, legality and pop counts, on the same boards as ModelBenchmark
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+@State(Scope.Thread)
+public class PlacementKernelBenchmark {
+
+    @Param({"scalar", "vector"})
+    String kernel;
+
+    @Param({"empty", "30", "60", "nearDead"})
+    String fill;
+
+    PlacementKernel evaluator;
+    long lo;
+    long hi;
+    Batch[] batches;
+    int[] popCounts = new int[ModelInterface.width * ModelInterface.height];
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        evaluator = kernel.equals("vector") ? PlacementKernel.vector() : PlacementKernel.scalar();
+        if (evaluator == null) throw new IllegalStateException("jdk.incubator.vector isn't available");
+        StandardModel board = (StandardModel) BenchmarkBoards.createModel("bitboard");
+        BenchmarkBoards.fill(board, fill);
+        BoardState state = board.snapshot();
+        lo = state.lo();
+        hi = state.hi();
+        List<Shape> palette = BenchmarkBoards.palette();
+        batches = new Batch[palette.size()];
+        for (int i = 0; i < palette.size(); i++) batches[i] = PlacementKernel.batch(palette.get(i));
+    }
+
+    @Benchmark
+    public void evaluatePalette(Blackhole bh) {
+        for (Batch batch : batches) {
+            evaluator.evaluate(lo, hi, batch, popCounts);
+            bh.consume(popCounts);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package blocks;
+
+import blocks.BlockShapes.Shape;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class StrategyBenchmark {
+
+    @Param({"set", "2dArray", "bitboard"})
+    String model;
+
+    @Param({"empty", "30", "60", "nearDead"})
+    String fill;
+
+    ModelStrategy strategy;
+    List<Shape> palette;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        ModelInterface board = BenchmarkBoards.createModel(model);
+        BenchmarkBoards.fill(board, fill);
+        strategy = BenchmarkBoards.createStrategy(board);
+        palette = BenchmarkBoards.palette();
+    }
+
+    @Benchmark
+    public void getValidStartingPoint(Blackhole bh) {
+        for (Shape shape : palette) {
+            bh.consume(strategy.getValidStartingPoint(shape));
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package blocks;
+
+import blocks.BlockShapes.Sprite;
+
+import javax.swing.*;
+import java.util.ArrayList;
+import java.util.List;
+
+public class AnimationScheduler {
+    // moves sprites towards their targets from one Swing timer shared by every running
+    // animation; positions are interpolated from the elapsed time, so the speed doesn't
+    // depend on how often the timer fires, and each frame asks for a single repaint
+
+    public static final int defaultFps = 60;
+    public static final int defaultPixelsPerSecond = 600;
+
+    private record Animation(Sprite sprite, int fromX, int fromY, int toX, int toY, long start, long duration,
+                             Runnable onArrival) {
+    }
+
+    private final Timer timer;
+    private final Runnable repaint;
+    private final List<Animation> animations = new ArrayList<>();
+    private int pixelsPerSecond = defaultPixelsPerSecond;
+    // in turbo mode moves are applied straight away, with no frames in between
+    private boolean turbo = false;
+
+    public AnimationScheduler(Runnable repaint) {
+        this(defaultFps, repaint);
+    }
+
+    public AnimationScheduler(int fps, Runnable repaint) {
+        this.repaint = repaint;
+        this.timer = new Timer(1000 / fps, actionEvent -> tick(System.nanoTime()));
+    }
+
+    public void setFps(int fps) {
+        timer.setDelay(1000 / fps);
+    }
+
+    public void setPixelsPerSecond(int pixelsPerSecond) {
+        this.pixelsPerSecond = pixelsPerSecond;
+    }
+
+    public void setTurbo(boolean turbo) {
+        this.turbo = turbo;
+    }
+
+    public boolean isTurbo() {
+        return turbo;
+    }
+
+    public boolean isRunning() {
+        return !animations.isEmpty();
+    }
+
+    // move the sprite to the pixel location, then run onArrival on the event dispatch thread
+    public void animate(Sprite sprite, int toX, int toY, Runnable onArrival) {
+        if (turbo) {
+            sprite.px = toX;
+            sprite.py = toY;
+            // queued rather than called, so a bot that chains moves doesn't grow the stack
+            SwingUtilities.invokeLater(onArrival);
+            return;
+        }
+        double distance = Math.hypot(toX - sprite.px, toY - sprite.py);
+        long duration = (long) (distance / pixelsPerSecond * 1e9);
+        animations.add(new Animation(sprite, sprite.px, sprite.py, toX, toY, System.nanoTime(), duration, onArrival));
+        if (!timer.isRunning()) timer.start();
+    }
+
+    // stop every animation where it is, without running the arrival callbacks
+    public void cancelAll() {
+        animations.clear();
+        timer.stop();
+    }
+
+    // one frame: move every sprite to where it should be by now
+    void tick(long now) {
+        List<Runnable> arrived = new ArrayList<>();
+        for (Animation animation : List.copyOf(animations)) {
+            double t = animation.duration() == 0 ? 1.0 : Math.min(1.0, (double) (now - animation.start()) / animation.duration());
+            animation.sprite().px = animation.fromX() + (int) Math.round((animation.toX() - animation.fromX()) * t);
+            animation.sprite().py = animation.fromY() + (int) Math.round((animation.toY() - animation.fromY()) * t);
+            if (t >= 1.0) {
+                animations.remove(animation);
+                arrived.add(animation.onArrival());
+            }
+        }
+        if (animations.isEmpty()) timer.stop();
+        repaint.run();
+        for (Runnable onArrival : arrived) onArrival.run();
+    }
+}
@@ -8,30 +8,236 @@ One pot
  */
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.List;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
 
 public class BlockShapes {
     // a grid location or cell in a shape
     public record Cell(int x, int y) {
+        // one shared instance per grid cell, so hot paths can look cells up without allocating
+        private static final Cell[] gridCells = new Cell[ModelInterface.width * ModelInterface.height];
+
+        static {
+            for (int y = 0; y < ModelInterface.height; y++) {
+                for (int x = 0; x < ModelInterface.width; x++) {
+                    gridCells[y * ModelInterface.width + x] = new Cell(x, y);
+                }
+            }
+        }
+
+        // the shared cell for grid locations, or a new one for anything off the grid
+        public static Cell of(int x, int y) {
+            return ModelInterface.inBounds(x, y) ? gridCells[y * ModelInterface.width + x] : new Cell(x, y);
+        }
     }
 
     // a shape is a list of cells
     public static class Shape extends ArrayList<Cell> {
+        // the distinct cells packed as (x << 16) | y and their bounding box, rebuilt only if the list has been modified
+        private int[] offsets;
+        private int minX, minY, maxX, maxY;
+        private int offsetsModCount = -1;
+        // the shape's index in the ShapeSet, -1 for any other shape
+        private final int id;
+        // catalogue shapes are shared by every game, so they can't be changed
+        private final boolean frozen;
+
         public Shape(List<Cell> cells) {
-            super(cells);
+            this(cells, -1, false);
         }
 
         public Shape() {
             super();
+            this.id = -1;
+            this.frozen = false;
+        }
+
+        private Shape(List<Cell> cells, int id, boolean frozen) {
+            super(cells);
+            this.id = id;
+            this.frozen = frozen;
+            // worked out up front, as a frozen shape is read from many threads
+            offsets();
+        }
+
+        // a catalogue entry: the distinct cells, moved so the bounding box starts at (0, 0)
+        static Shape compiled(List<Cell> cells, int id) {
+            int minX = cells.stream().mapToInt(Cell::x).min().orElse(0);
+            int minY = cells.stream().mapToInt(Cell::y).min().orElse(0);
+            return new Shape(cells.stream().map(cell -> Cell.of(cell.x() - minX, cell.y() - minY)).distinct().toList(), id, id >= 0);
+        }
+
+        public int id() {
+            return id;
+        }
+
+        public int[] offsets() {
+            if (offsets == null || offsetsModCount != modCount) {
+                offsets = stream().distinct().mapToInt(cell -> (cell.x() << 16) | (cell.y() & 0xFFFF)).toArray();
+                minX = stream().mapToInt(Cell::x).min().orElse(0);
+                minY = stream().mapToInt(Cell::y).min().orElse(0);
+                maxX = stream().mapToInt(Cell::x).max().orElse(-1);
+                maxY = stream().mapToInt(Cell::y).max().orElse(-1);
+                offsetsModCount = modCount;
+            }
+            return offsets;
+        }
+
+        public int minX() {
+            offsets();
+            return minX;
+        }
+
+        public int minY() {
+            offsets();
+            return minY;
+        }
+
+        // the size of the bounding box in cells
+        public int width() {
+            offsets();
+            return maxX - minX + 1;
+        }
+
+        public int height() {
+            offsets();
+            return maxY - minY + 1;
+        }
+
+        // whether every cell is on a board of this size with the shape at the anchor, in O(1) from the bounding box
+        public boolean fitsAt(int anchorX, int anchorY, int boardWidth, int boardHeight) {
+            offsets();
+            return anchorX + minX >= 0 && anchorX + maxX < boardWidth && anchorY + minY >= 0 && anchorY + maxY < boardHeight;
+        }
+
+        // the window of anchors that keep the shape on the board, first and last inclusive;
+        // (board - width + 1) by (board - height + 1) anchors for a shape with its bounding box at (0, 0)
+        public int firstAnchorX() {
+            return -minX();
+        }
+
+        public int lastAnchorX(int boardWidth) {
+            offsets();
+            return boardWidth - 1 - maxX;
+        }
+
+        public int firstAnchorY() {
+            return -minY();
+        }
+
+        public int lastAnchorY(int boardHeight) {
+            offsets();
+            return boardHeight - 1 - maxY;
+        }
+
+        private void checkNotFrozen() {
+            if (frozen) throw new UnsupportedOperationException("ShapeSet shapes can't be changed, copy one with new Shape(shape)");
+        }
+
+        @Override
+        public boolean add(Cell cell) {
+            checkNotFrozen();
+            return super.add(cell);
+        }
+
+        @Override
+        public void add(int index, Cell cell) {
+            checkNotFrozen();
+            super.add(index, cell);
+        }
+
+        @Override
+        public boolean addAll(Collection<? extends Cell> cells) {
+            checkNotFrozen();
+            return super.addAll(cells);
+        }
+
+        @Override
+        public boolean addAll(int index, Collection<? extends Cell> cells) {
+            checkNotFrozen();
+            return super.addAll(index, cells);
+        }
+
+        @Override
+        public Cell set(int index, Cell cell) {
+            checkNotFrozen();
+            return super.set(index, cell);
+        }
+
+        @Override
+        public Cell remove(int index) {
+            checkNotFrozen();
+            return super.remove(index);
+        }
+
+        @Override
+        public boolean remove(Object cell) {
+            checkNotFrozen();
+            return super.remove(cell);
+        }
+
+        @Override
+        public boolean removeAll(Collection<?> cells) {
+            checkNotFrozen();
+            return super.removeAll(cells);
+        }
+
+        @Override
+        public boolean retainAll(Collection<?> cells) {
+            checkNotFrozen();
+            return super.retainAll(cells);
+        }
+
+        @Override
+        public boolean removeIf(Predicate<? super Cell> filter) {
+            checkNotFrozen();
+            return super.removeIf(filter);
+        }
+
+        @Override
+        protected void removeRange(int from, int to) {
+            checkNotFrozen();
+            super.removeRange(from, to);
+        }
+
+        @Override
+        public void replaceAll(UnaryOperator<Cell> operator) {
+            checkNotFrozen();
+            super.replaceAll(operator);
+        }
+
+        @Override
+        public void sort(Comparator<? super Cell> comparator) {
+            checkNotFrozen();
+            super.sort(comparator);
+        }
+
+        @Override
+        public void clear() {
+            checkNotFrozen();
+            super.clear();
+        }
+
+        public static int offsetX(int offset) {
+            return offset >> 16;
+        }
+
+        public static int offsetY(int offset) {
+            return (short) offset;
         }
     }
 
     // a piece is a shape located at a grid location
     public record Piece(Shape shape, Cell loc) {
         public List<Cell> cells() {
-            return shape.stream()
-                    .map(cell -> new Cell(cell.x() + loc.x(), cell.y() + loc.y()))
-                    .toList();
+            List<Cell> cells = new ArrayList<>(shape.size());
+            for (Cell cell : shape) {
+                cells.add(Cell.of(cell.x() + loc.x(), cell.y() + loc.y()));
+            }
+            return cells;
         }
     }
 
@@ -73,12 +279,27 @@ public class BlockShapes {
             return false;
         }
 
+        // check if a point is within the bounding box of the sprite's shape
+        public boolean boundsContain(PixelLoc point, int cellSize) {
+            int left = px + shape.minX() * cellSize;
+            int top = py + shape.minY() * cellSize;
+            return left <= point.x() && point.x() < left + shape.width() * cellSize
+                    && top <= point.y() && point.y() < top + shape.height() * cellSize;
+        }
+
         // snap the piece to the grid and return as a Piece
         // since it will now be in grid coordinates
         public Piece snapToGrid(int margin, int cellSize) {
-            int gx = (px - margin + cellSize / 2) / cellSize;
-            int gy = (py - margin + cellSize / 2) / cellSize;
-            return new Piece(shape, new Cell(gx, gy));
+            return new Piece(shape, Cell.of(gridX(margin, cellSize), gridY(margin, cellSize)));
+        }
+
+        // the grid column and row the sprite would snap to, without building a Piece
+        public int gridX(int margin, int cellSize) {
+            return (px - margin + cellSize / 2) / cellSize;
+        }
+
+        public int gridY(int margin, int cellSize) {
+            return (py - margin + cellSize / 2) / cellSize;
         }
 
         public String toString() {
@@ -96,7 +317,7 @@ public class BlockShapes {
                 new Shape(List.of(new Cell(0, 1), new Cell(1, 0), new Cell(1, 1))),
                 new Shape(List.of(new Cell(0, 0), new Cell(1, 0), new Cell(1, 1))),
                 new Shape(List.of(new Cell(0, 0), new Cell(1, 0), new Cell(1, 1), new Cell(2, 1))),
-                new Shape(List.of(new Cell(0, 0), new Cell(1, 0), new Cell(1, 0), new Cell(1, 1))),
+                new Shape(List.of(new Cell(0, 0), new Cell(1, 0), new Cell(1, 1))),
                 new Shape(List.of(new Cell(0, 0), new Cell(1, 0), new Cell(1, 1), new Cell(2, 0))),
                 new Shape(List.of(new Cell(0, 0), new Cell(1, 0), new Cell(2, 0), new Cell(3, 0))),
                 new Shape(List.of(new Cell(0, 0), new Cell(0, 1), new Cell(0, 2), new Cell(0, 3))),
@@ -119,9 +340,27 @@ public class BlockShapes {
                 new Shape(List.of(new Cell(0, 1), new Cell(1, 0), new Cell(1, 1), new Cell(2, 1)))
         ));
 
+        // the compiled catalogue shared by every palette, table and record, built on first use: each shape has its
+        // index as a stable id, distinct cells normalised to a (0, 0) bounding box, and can't be changed
+        private static final class Shared {
+            static final List<Shape> shapes = compile(new ShapeSet().getShapes());
+
+            private static List<Shape> compile(List<Shape> shapes) {
+                List<Shape> compiled = new ArrayList<>();
+                for (int id = 0; id < shapes.size(); id++) {
+                    compiled.add(Shape.compiled(shapes.get(id), id));
+                }
+                return List.copyOf(compiled);
+            }
+        }
+
         public ArrayList<Shape> getShapes() {
             return shapeTypes;
         }
+
+        public static List<Shape> shared() {
+            return Shared.shapes;
+        }
     }
 
 }
\ No newline at end of file
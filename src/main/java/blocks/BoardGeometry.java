@@ -0,0 +1,98 @@
+package blocks;
+
+import blocks.BlockShapes.Cell;
+import blocks.BlockShapes.Shape;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The size of a board and the tables that go with it.
+ * <p>
+ * The classic game is 9x9 with 3x3 sub-squares, which is what the ModelInterface constants
+ * describe, but boards such as 12x12 or 16x16 with 4x4 sub-squares and 25x25 with 5x5 ones can
+ * be played with ModelWords. Regions are in RegionHelper order (rows, columns, then sub-squares)
+ * and cells are indexed y * width + x. Geometries are immutable and shared, one per size.
+ */
+public final class BoardGeometry {
+    private static final Map<Long, BoardGeometry> shared = new ConcurrentHashMap<>();
+    public static final BoardGeometry standard = of(ModelInterface.width, ModelInterface.height, ModelInterface.subSize);
+
+    final int width;
+    final int height;
+    final int subSize;
+    final List<Shape> regions;
+    // for each cell, the indices of the regions containing it
+    final int[][] regionsByCell;
+    // for each region, the indices of its cells
+    final int[][] regionCells;
+    final long[] cellKeys;
+
+    private BoardGeometry(int width, int height, int subSize) {
+        this.width = width;
+        this.height = height;
+        this.subSize = subSize;
+        RegionHelper regionHelper = new RegionHelper(width, height, subSize);
+        this.regions = List.copyOf(regionHelper.allRegions());
+        this.regionsByCell = regionHelper.regionsByCell(regions);
+        this.regionCells = new int[regions.size()][];
+        for (int i = 0; i < regions.size(); i++) {
+            regionCells[i] = regions.get(i).stream().mapToInt(cell -> index(cell.x(), cell.y())).toArray();
+        }
+        this.cellKeys = Zobrist.cellKeys(width, height);
+    }
+
+    public static BoardGeometry of(int width, int height, int subSize) {
+        if (width <= 0 || height <= 0 || subSize <= 0 || width % subSize != 0 || height % subSize != 0) {
+            throw new IllegalArgumentException("Sub-squares of " + subSize + " don't tile a " + width + "x" + height + " board");
+        }
+        long key = ((long) width << 40) | ((long) height << 20) | subSize;
+        return shared.computeIfAbsent(key, k -> new BoardGeometry(width, height, subSize));
+    }
+
+    // a square board, with the smallest sub-squares of at least the square root of its size,
+    // so 9 gives 3x3 sub-squares, 12 and 16 give 4x4, and 25 gives 5x5
+    public static BoardGeometry of(int size) {
+        int subSize = (int) Math.ceil(Math.sqrt(size));
+        while (size % subSize != 0) subSize++;
+        return of(size, size, subSize);
+    }
+
+    public int width() {
+        return width;
+    }
+
+    public int height() {
+        return height;
+    }
+
+    public int subSize() {
+        return subSize;
+    }
+
+    public int cells() {
+        return width * height;
+    }
+
+    public List<Shape> regions() {
+        return regions;
+    }
+
+    public boolean inBounds(int x, int y) {
+        return x >= 0 && y >= 0 && x < width && y < height;
+    }
+
+    public int index(int x, int y) {
+        return y * width + x;
+    }
+
+    public Cell cell(int index) {
+        return Cell.of(index % width, index / width);
+    }
+
+    @Override
+    public String toString() {
+        return width + "x" + height + "/" + subSize;
+    }
+}
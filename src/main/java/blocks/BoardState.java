@@ -0,0 +1,99 @@
+package blocks;
+
+import blocks.BlockShapes.Cell;
+import blocks.BlockShapes.Piece;
+import blocks.BlockShapes.Shape;
+import blocks.PlacementTable.Placement;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * An immutable 9x9 game state: the occupied cells as a two-long bitboard (bit index y * width + x,
+ * as in StateBitboard), the score and the streak.
+ * <p>
+ * A state is a value, so taking one is O(1) for a model that keeps a bitboard, keeping one costs
+ * 40 bytes, and place returns a new state without touching this one. Searches can branch from a
+ * state as often as they like, and the live models keep them for undo and redo.
+ */
+public record BoardState(long lo, long hi, int score, int streak) {
+    public static final BoardState empty = new BoardState(0L, 0L, 0, 0);
+
+    public boolean isOccupied(int x, int y) {
+        int bit = y * ModelInterface.width + x;
+        return ((bit < 64 ? lo >>> bit : hi >>> (bit - 64)) & 1L) != 0;
+    }
+
+    public int occupiedCount() {
+        return Long.bitCount(lo) + Long.bitCount(hi);
+    }
+
+    public Set<Cell> occupiedCells() {
+        Set<Cell> cells = new HashSet<>();
+        for (long bits = lo; bits != 0; bits &= bits - 1) cells.add(cell(Long.numberOfTrailingZeros(bits)));
+        for (long bits = hi; bits != 0; bits &= bits - 1) cells.add(cell(64 + Long.numberOfTrailingZeros(bits)));
+        return cells;
+    }
+
+    static Cell cell(int bit) {
+        return Cell.of(bit % ModelInterface.width, bit / ModelInterface.width);
+    }
+
+    public long zobristKey() {
+        return Zobrist.of(lo, hi);
+    }
+
+    public boolean canPlace(Placement placement) {
+        return (placement.lo() & lo) == 0 && (placement.hi() & hi) == 0;
+    }
+
+    public boolean canPlace(Piece piece) {
+        Cell loc = piece.loc();
+        if (!piece.shape().fitsAt(loc.x(), loc.y(), ModelInterface.width, ModelInterface.height)) return false;
+        for (int offset : piece.shape().offsets()) {
+            if (isOccupied(loc.x() + Shape.offsetX(offset), loc.y() + Shape.offsetY(offset))) return false;
+        }
+        return true;
+    }
+
+    // the state after placing the piece, which must fit, with the scoring rule of the models
+    public BoardState place(Placement placement) {
+        return place(placement.lo(), placement.hi(), placement.regions());
+    }
+
+    public BoardState place(Piece piece) {
+        long pieceLo = 0L;
+        long pieceHi = 0L;
+        Cell loc = piece.loc();
+        for (int offset : piece.shape().offsets()) {
+            int bit = (loc.y() + Shape.offsetY(offset)) * ModelInterface.width + loc.x() + Shape.offsetX(offset);
+            if (bit < 64) pieceLo |= 1L << bit;
+            else pieceHi |= 1L << (bit - 64);
+        }
+        long regions = 0L;
+        for (int region = 0; region < ModelBitboard.regionLo.length; region++) {
+            if ((ModelBitboard.regionLo[region] & pieceLo) != 0 || (ModelBitboard.regionHi[region] & pieceHi) != 0) {
+                regions |= 1L << region;
+            }
+        }
+        return place(pieceLo, pieceHi, regions);
+    }
+
+    private BoardState place(long pieceLo, long pieceHi, long touchedRegions) {
+        long newLo = lo | pieceLo;
+        long newHi = hi | pieceHi;
+        int pops = 0;
+        long clearLo = 0L;
+        long clearHi = 0L;
+        for (long bits = touchedRegions; bits != 0; bits &= bits - 1) {
+            int region = Long.numberOfTrailingZeros(bits);
+            if ((newLo & ModelBitboard.regionLo[region]) == ModelBitboard.regionLo[region]
+                    && (newHi & ModelBitboard.regionHi[region]) == ModelBitboard.regionHi[region]) {
+                pops++;
+                clearLo |= ModelBitboard.regionLo[region];
+                clearHi |= ModelBitboard.regionHi[region];
+            }
+        }
+        return new BoardState(newLo & ~clearLo, newHi & ~clearHi, score + pops * pops * 10, pops == 0 ? 0 : streak + 1);
+    }
+}
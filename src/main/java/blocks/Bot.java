@@ -4,34 +4,25 @@ import blocks.BlockShapes.Cell;
 import blocks.BlockShapes.Piece;
 import blocks.BlockShapes.Sprite;
 
-import javax.swing.*;
-
 public class Bot {
-    Timer timer;
+    // shared by every bot move, so the frame rate and turbo mode are set in one place
+    final AnimationScheduler scheduler;
 
     // Callback interface to notify when the bot is done moving
     public interface BotMovementCompleteCallback {
         void placePiece(Piece piece);
     }
 
-    public void positionPiece(Sprite sprite, Cell startingPoint, int margin, int cellSize, Runnable repaint, BotMovementCompleteCallback callback) {
+    public Bot(AnimationScheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    public void positionPiece(Sprite sprite, Cell startingPoint, int margin, int cellSize, BotMovementCompleteCallback callback) {
         if (startingPoint == null || sprite == null) return;
-        Piece targetPiece = new Piece(sprite.shape, startingPoint);
-        timer = new Timer(0, actionEvent -> {
-            Piece currentPiece = sprite.snapToGrid(margin, cellSize);
-            int targetX = targetPiece.cells().get(0).x();
-            int currentX = currentPiece.cells().get(0).x();
-            if (currentX != targetX) {
-                sprite.px += (currentX < targetX) ? 2 : -2;
-            } else if (currentPiece.cells().get(0).y() > targetPiece.cells().get(0).y()) {
-                sprite.py -= 2;
-            } else {
-                timer.stop();
-                callback.placePiece(currentPiece);  // Notify the callback that movement is done
-                return;
-            }
-            repaint.run();
-        });
-        timer.start();
+        // the sprite's top left goes to the top left of the target cell, where it snaps to the starting point
+        int targetX = margin + startingPoint.x() * cellSize;
+        int targetY = margin + startingPoint.y() * cellSize;
+        scheduler.animate(sprite, targetX, targetY,
+                () -> callback.placePiece(sprite.snapToGrid(margin, cellSize)));  // Notify the callback that movement is done
     }
 }
@@ -2,9 +2,20 @@ package blocks;
 
 import javax.swing.*;
 import java.awt.*;
+import java.awt.event.ActionEvent;
+import java.awt.event.KeyEvent;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.BitSet;
+import java.util.Deque;
 import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
 
 import blocks.BlockShapes.Sprite;
 import blocks.BlockShapes.PixelLoc;
@@ -22,8 +33,23 @@ public class Controller extends MouseAdapter {
     JPanel panel = new JPanel();
     Sprite selectedSprite = null;
     Piece ghostShape = null;
+    // the anchors the selected sprite can go to, the board can't change during a drag so they're found once
+    BitSet dragAnchors = null;
     String title = "Blocks Puzzle";
     boolean gameOver = false;
+    // anything the player should know that isn't the score, shown at the end of the title
+    String status = null;
+    // runs the bot's sprite movements, one repaint per frame however many are moving
+    AnimationScheduler animations;
+    // makes the bot's strategy decisions off the EDT
+    StrategyWorker strategyWorker;
+    // with -Dblocks.recordDir=<dir> every game is appended to an archive in that directory
+    GameRecorder recorder = null;
+    Path recordDir = null;
+    // the palette before each move, in step with the model's undo history; ctrl+z and ctrl+y until the bot takes over
+    Deque<List<Sprite>> paletteUndo = new ArrayDeque<>();
+    Deque<List<Sprite>> paletteRedo = new ArrayDeque<>();
+    boolean undoEnabled = true;
 
     public Controller(GameView view, ModelInterface model, Palette palette, JFrame frame, ModelStrategy strategy) {
         this.view = view;
@@ -31,9 +57,31 @@ public class Controller extends MouseAdapter {
         this.palette = palette;
         this.frame = frame;
         this.strategy = strategy;
+        this.animations = new AnimationScheduler(view::repaintDrag);
+        this.strategyWorker = new StrategyWorker(model, strategy);
+        // the window is the only place moves can be undone, so it's the only game that keeps a history
+        model.keepHistory(UndoHistory.defaultLimit);
+        String dir = System.getProperty("blocks.recordDir");
+        if (dir != null) {
+            recordDir = Path.of(dir);
+            // the window's palette isn't seeded, the shapes drawn are in the record instead
+            recorder = new GameRecorder(0L, model.getGeometry());
+            recorder.palette(palette.getShapesToPlace());
+            palette.replenishListener = recorder::palette;
+            frame.addWindowListener(new WindowAdapter() {
+                @Override
+                public void windowClosing(WindowEvent e) {
+                    // a game still in play is recorded as far as it got
+                    if (recorder == null || recorder.getMoves() == 0) return;
+                    if (!saveRecord()) JOptionPane.showMessageDialog(frame, status, title, JOptionPane.WARNING_MESSAGE);
+                }
+            });
+        }
+        bindKey(KeyEvent.VK_Z, "undo", this::undo);
+        bindKey(KeyEvent.VK_Y, "redo", this::redo);
         frame.setTitle(title);
         // force palette to do a layout
-        palette.doLayout(view.margin, view.margin + ModelInterface.height * view.cellSize, view.paletteCellSize);
+        palette.doLayout(view.margin, view.margin + view.geometry.height() * view.cellSize, view.paletteCellSize);
     }
 
     public void mousePressed(MouseEvent e) {
@@ -46,6 +94,7 @@ public class Controller extends MouseAdapter {
         if (sprite != null && sprite.state == SpriteState.IN_PALETTE) {
             selectedSprite = sprite;
             selectedSprite.state = SpriteState.IN_PLAY;
+            dragAnchors = model.getLegalAnchors(sprite.shape);
             frame.remove(panel);
             frame.revalidate();
             frame.repaint();
@@ -58,28 +107,30 @@ public class Controller extends MouseAdapter {
         selectedSprite.px = e.getX();
         selectedSprite.py = e.getY();
         ghostShape = null;
-        for (Sprite sprite : palette.getSprites()) {
-            Piece piece = sprite.snapToGrid(view.margin, view.cellSize);
-            if (sprite.state == SpriteState.IN_PLAY && model.canPlace(piece)) {
-                ghostShape = piece;
-                break;
-            }
+        Piece piece = selectedSprite.snapToGrid(view.margin, view.cellSize);
+        Cell anchor = piece.loc();
+        if (view.geometry.inBounds(anchor.x(), anchor.y()) && dragAnchors.get(view.geometry.index(anchor.x(), anchor.y()))) {
+            ghostShape = piece;
         }
-        view.repaint();
+        // only the old and new sprite and ghost areas need to be redrawn
+        view.repaintDrag();
     }
 
     public void mouseReleased(MouseEvent e) {
         if (selectedSprite != null && ghostShape == null) {
             selectedSprite.state = SpriteState.IN_PALETTE;
-        } else if (selectedSprite != null && model.canPlace(ghostShape)) {
+        } else if (selectedSprite != null && view.placementPreview.get(ghostShape).legal()) {
+            pushPalette(paletteUndo);
+            paletteRedo.clear();
             model.place(ghostShape);
+            if (recorder != null) recorder.move(ghostShape, model);
             selectedSprite.state = SpriteState.PLACED;
         }
         selectedSprite=null;
         ghostShape=null;
 
         palette.replenish();
-        palette.doLayout(view.margin, view.margin + ModelInterface.height * view.cellSize, view.paletteCellSize);
+        palette.doLayout(view.margin, view.margin + view.geometry.height() * view.cellSize, view.paletteCellSize);
 
         if (isGameOver()) return;
 
@@ -88,12 +139,58 @@ public class Controller extends MouseAdapter {
         view.repaint();
     }
 
+    private void bindKey(int key, String name, Runnable action) {
+        KeyStroke stroke = KeyStroke.getKeyStroke(key, Toolkit.getDefaultToolkit().getMenuShortcutKeyMaskEx());
+        view.getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW).put(stroke, name);
+        view.getActionMap().put(name, new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                action.run();
+            }
+        });
+    }
+
+    void undo() {
+        if (!undoEnabled || selectedSprite != null || paletteUndo.isEmpty() || !model.undo()) return;
+        pushPalette(paletteRedo);
+        palette.restore(paletteUndo.pop());
+        historyMoved();
+    }
+
+    void redo() {
+        if (!undoEnabled || selectedSprite != null || paletteRedo.isEmpty() || !model.redo()) return;
+        pushPalette(paletteUndo);
+        palette.restore(paletteRedo.pop());
+        historyMoved();
+    }
+
+    // the model's history drops its oldest state past the limit, so the palettes drop theirs too to stay in step
+    private void pushPalette(Deque<List<Sprite>> palettes) {
+        palettes.push(palette.snapshot());
+        if (palettes.size() > UndoHistory.defaultLimit) palettes.removeLast();
+    }
+
+    private void historyMoved() {
+        // a game with undone moves can't be replayed from its record
+        if (recorder != null) {
+            status = "undo used, this game won't be recorded";
+            recorder = null;
+            palette.replenishListener = null;
+        }
+        gameOver = false;
+        palette.doLayout(view.margin, view.margin + view.geometry.height() * view.cellSize, view.paletteCellSize);
+        isGameOver();
+    }
+
     private String getTitle() {
         // make the title from the base title, score, and add GameOver if the game is over
         String title = this.title + " Score: " + model.getScore() + " Streak: " + strategy.getStreak();
         if (gameOver) {
             title += " Game Over!";
         }
+        if (status != null) {
+            title += " (" + status + ")";
+        }
         return title;
     }
 
@@ -105,12 +202,30 @@ public class Controller extends MouseAdapter {
 
         if (model.isGameOver(shapesInPalette)) {
             gameOver = true;
+            strategyWorker.cancel();
+            saveRecord();
         }
         frame.setTitle(getTitle());
         view.repaint();
         return gameOver;
     }
 
+    // false, with the reason shown in the title, if the game couldn't be written
+    private boolean saveRecord() {
+        if (recorder == null) return true;
+        byte[] record = recorder.end(model);
+        recorder = null;
+        palette.replenishListener = null;
+        try (GameArchive archive = new GameArchive(recordDir, "gui", 1)) {
+            archive.append(0, record);
+            return true;
+        } catch (IOException e) {
+            status = "game not recorded: " + e.getMessage();
+            frame.setTitle(getTitle());
+            return false;
+        }
+    }
+
     private void nextSprite(int spriteIndex) {
         int newSpriteIndex = (spriteIndex+1)%palette.nShapes;
         randomBot(newSpriteIndex);
@@ -125,23 +240,47 @@ public class Controller extends MouseAdapter {
             return;
         }
 
-        Cell startingPoint = strategy.getValidStartingPoint(selectedSprite.shape);
-        if (startingPoint == null) {
-            nextSprite(spriteIndex);
-        }
+        // the strategy runs on the worker thread, and the answer comes back on the EDT for the animation,
+        // so the next move starts from a fresh event rather than deeper in the stack
+        strategyWorker.getValidStartingPoint(selectedSprite.shape).thenAccept(startingPoint -> {
+            if (startingPoint == null) {
+                nextSprite(spriteIndex);
+                return;
+            }
 
-        selectedSprite.state = SpriteState.IN_PLAY;
-        new Bot().positionPiece(selectedSprite, startingPoint, view.margin, view.cellSize, () -> view.repaint(), (piece) -> {
-            model.place(piece);
-            selectedSprite.state = SpriteState.PLACED;
-            palette.replenish();
-            palette.doLayout(view.margin, view.margin + ModelInterface.height * view.cellSize, view.paletteCellSize);
-            view.repaint();
-            if (isGameOver()) return;
-            nextSprite(spriteIndex);
+            selectedSprite.state = SpriteState.IN_PLAY;
+            new Bot(animations).positionPiece(selectedSprite, startingPoint, view.margin, view.cellSize, (piece) -> {
+                model.place(piece);
+                if (recorder != null) recorder.move(piece, model);
+                selectedSprite.state = SpriteState.PLACED;
+                palette.replenish();
+                palette.doLayout(view.margin, view.margin + view.geometry.height() * view.cellSize, view.paletteCellSize);
+                view.repaint();
+                if (isGameOver()) return;
+                nextSprite(spriteIndex);
+            });
+        }).exceptionally(error -> {
+            // a decision is cancelled when it was made for a board that has since changed, so ask again for
+            // this board, unless it was cancelled because the game is over; anything else stops the bot
+            if (error instanceof CancellationException || error.getCause() instanceof CancellationException) {
+                if (!gameOver) randomBot(spriteIndex);
+            } else {
+                botFailed(error instanceof CompletionException && error.getCause() != null ? error.getCause() : error);
+            }
+            return null;
         });
     }
 
+    private void botFailed(Throwable error) {
+        strategyWorker.cancel();
+        if (selectedSprite != null && selectedSprite.state == SpriteState.IN_PLAY) selectedSprite.state = SpriteState.IN_PALETTE;
+        selectedSprite = null;
+        status = "bot stopped: " + error;
+        palette.doLayout(view.margin, view.margin + view.geometry.height() * view.cellSize, view.paletteCellSize);
+        frame.setTitle(getTitle());
+        view.repaint();
+    }
+
     public static void main(String[] args) {
         JFrame frame = new JFrame();
         frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
@@ -149,8 +288,20 @@ public class Controller extends MouseAdapter {
         ModelStrategy strategy = new StrategySet((ModelSet) model);
 //        ModelInterface model = new Model2dArray();
 //        ModelStrategy strategy = new Strategy2dArray((Model2dArray) model);
+//        ModelInterface model = new ModelBitboard();
+//        ModelStrategy strategy = new StrategyBitboard((ModelBitboard) model);
+//        ModelInterface model = new ModelWords(BoardGeometry.of(16));
+//        ModelStrategy strategy = new StrategyWords((ModelWords) model);
         Palette palette = new Palette();
+//        ModelStrategy strategy = new StrategyLookahead((StandardModel) model, palette::getShapesToPlace);
+        // with -Dblocks.metrics=true the model, strategy and painting are measured, see blocks:type=GameMetrics in JConsole
+        GameMetrics metrics = GameMetrics.enabled() ? GameMetrics.shared() : null;
+        if (metrics != null) {
+            model = new InstrumentedModel(model, metrics);
+            strategy = new InstrumentedStrategy(strategy, metrics);
+        }
         GameView view = new GameView(model, palette);
+        view.metrics = metrics;
         Controller controller = new Controller(view, model, palette, frame, strategy);
         view.addMouseListener(controller);
         view.addMouseMotionListener(controller);
@@ -159,6 +310,7 @@ public class Controller extends MouseAdapter {
         randomButton.addActionListener(actionEvent -> {
             // identify playable position
             // check if sprite can be placed
+            controller.undoEnabled = false;
             controller.randomBot(0);
             controller.panel.remove(randomButton);
             view.removeMouseListener(controller);
@@ -167,6 +319,10 @@ public class Controller extends MouseAdapter {
             controller.panel.repaint();
         });
         controller.panel.add(randomButton);
+        // turbo skips the bot's animations, so a game plays at the speed of the strategy
+        JToggleButton turboButton = new JToggleButton("Turbo");
+        turboButton.addActionListener(actionEvent -> controller.animations.setTurbo(turboButton.isSelected()));
+        controller.panel.add(turboButton);
         frame.add(controller.panel, BorderLayout.SOUTH);
         frame.add(view, BorderLayout.CENTER);
         frame.pack();
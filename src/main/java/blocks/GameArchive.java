@@ -0,0 +1,39 @@
+package blocks;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+public class GameArchive implements AutoCloseable {
+    // appends recorded games to a fixed number of files in a directory, so that games finished on
+    // different threads can be written at the same time and replayed in parallel later
+    public static final String extension = ".blk";
+
+    private final FileChannel[] files;
+
+    public GameArchive(Path dir, String name, int nFiles) throws IOException {
+        Files.createDirectories(dir);
+        files = new FileChannel[nFiles];
+        for (int i = 0; i < nFiles; i++) {
+            files[i] = FileChannel.open(dir.resolve(name + "-" + i + extension),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        }
+    }
+
+    // a whole game is written at once, so games in a file never interleave
+    public void append(int game, byte[] record) throws IOException {
+        FileChannel file = files[Math.floorMod(game, files.length)];
+        synchronized (file) {
+            ByteBuffer buffer = ByteBuffer.wrap(record);
+            while (buffer.hasRemaining()) file.write(buffer);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (FileChannel file : files) file.close();
+    }
+}
@@ -0,0 +1,192 @@
+package blocks;
+
+import blocks.BlockShapes.Cell;
+import blocks.BlockShapes.Piece;
+import blocks.BlockShapes.Shape;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+import java.awt.Rectangle;
+import java.util.List;
+
+/**
+ * Java Flight Recorder events for gameplay, so a recording can line moves and frames up with GC and CPU.
+ * <p>
+ * The events are created on every call but only filled in and committed when a recording has them
+ * enabled; with no recording running, JFR's shouldCommit is a single flag check and the event object
+ * is scalar replaced. src/main/resources/blocks.jfc enables them all along with GC, CPU and sampling.
+ */
+public class GameEvents {
+
+    @Name("blocks.Placement")
+    @Label("Piece Placement")
+    @Category({"Blocks", "Model"})
+    @Description("A piece placed on the board, including clearing any regions it completes")
+    @StackTrace(false)
+    public static class Placement extends Event {
+        @Label("Model")
+        String model;
+        @Label("Shape")
+        String shape;
+        @Label("X")
+        int x;
+        @Label("Y")
+        int y;
+        @Label("Regions Popped")
+        int regionsPopped;
+        @Label("Score")
+        int score;
+        @Label("Streak")
+        int streak;
+
+        void commit(ModelInterface model, Piece piece, int regionsPopped) {
+            end();
+            if (!shouldCommit()) return;
+            this.model = model.getClass().getSimpleName();
+            this.shape = piece.shape().toString();
+            this.x = piece.loc().x();
+            this.y = piece.loc().y();
+            this.regionsPopped = regionsPopped;
+            this.score = model.getScore();
+            this.streak = model.getStreak();
+            commit();
+        }
+    }
+
+    @Name("blocks.Pops")
+    @Label("Region Pops")
+    @Category({"Blocks", "Model"})
+    @Description("The regions cleared by one placement")
+    @StackTrace(false)
+    public static class Pops extends Event {
+        @Label("Rows")
+        int rows;
+        @Label("Columns")
+        int columns;
+        @Label("Sub-squares")
+        int subSquares;
+        @Label("Cells Cleared")
+        int cellsCleared;
+        @Label("Streak")
+        int streak;
+    }
+
+    @Name("blocks.Decision")
+    @Label("Strategy Decision")
+    @Category({"Blocks", "Strategy"})
+    @Description("A strategy choosing where the given shape goes")
+    @StackTrace(false)
+    public static class Decision extends Event {
+        @Label("Strategy")
+        String strategy;
+        @Label("Shape")
+        String shape;
+        @Label("Candidates")
+        @Description("Legal placements of the shape the strategy looked at")
+        int candidates;
+        @Label("Positions Searched")
+        @Description("Positions or playouts visited by a search, 0 for strategies that don't search")
+        long searched;
+        @Label("Found")
+        boolean found;
+
+        Cell decided(ModelStrategy strategy, Shape shape, int candidates, long searched, Cell anchor) {
+            end();
+            if (shouldCommit()) {
+                this.strategy = strategy.getClass().getSimpleName();
+                this.shape = shape.toString();
+                this.candidates = candidates;
+                this.searched = searched;
+                this.found = anchor != null;
+                commit();
+            }
+            return anchor;
+        }
+
+        Cell decided(ModelStrategy strategy, Shape shape, int candidates, Cell anchor) {
+            return decided(strategy, shape, candidates, 0, anchor);
+        }
+    }
+
+    @Name("blocks.GameOver")
+    @Label("Game Over")
+    @Category({"Blocks", "Model"})
+    @Description("A game over check that found no palette shape can be placed")
+    @StackTrace(false)
+    public static class GameOver extends Event {
+        @Label("Model")
+        String model;
+        @Label("Score")
+        int score;
+        @Label("Streak")
+        int streak;
+        @Label("Occupied Cells")
+        int occupiedCells;
+        @Label("Palette Shapes")
+        int paletteShapes;
+    }
+
+    @Name("blocks.Frame")
+    @Label("Paint Frame")
+    @Category({"Blocks", "View"})
+    @Description("One GameView paint, with the area that was redrawn")
+    @StackTrace(false)
+    public static class Frame extends Event {
+        @Label("Dirty Width")
+        int dirtyWidth;
+        @Label("Dirty Height")
+        int dirtyHeight;
+        @Label("Dirty Area")
+        @Description("Pixels inside the clip, which is the whole component for a full repaint")
+        int dirtyArea;
+        @Label("Cached Layers")
+        boolean cachedLayers;
+
+        void painted(Rectangle clip, boolean cachedLayers) {
+            end();
+            if (!shouldCommit()) return;
+            if (clip != null) {
+                this.dirtyWidth = clip.width;
+                this.dirtyHeight = clip.height;
+                this.dirtyArea = clip.width * clip.height;
+            }
+            this.cachedLayers = cachedLayers;
+            commit();
+        }
+    }
+
+    // records the regions a placement cleared, when there were any and pops are being recorded
+    static void popped(List<Shape> regions, int streak) {
+        if (regions.isEmpty()) return;
+        Pops event = new Pops();
+        if (!event.shouldCommit()) return;
+        // regions hold board cells: a row shares its y, a column its x
+        for (Shape region : regions) {
+            if (region.stream().allMatch(c -> c.y() == region.get(0).y())) event.rows++;
+            else if (region.stream().allMatch(c -> c.x() == region.get(0).x())) event.columns++;
+            else event.subSquares++;
+        }
+        event.cellsCleared = (int) regions.stream().flatMap(Shape::stream).distinct().count();
+        event.streak = streak;
+        event.commit();
+    }
+
+    // records a game over when the check says so, and passes the answer through
+    static boolean gameOver(ModelInterface model, List<Shape> palettePieces, boolean over) {
+        if (!over) return false;
+        GameOver event = new GameOver();
+        if (event.shouldCommit()) {
+            event.model = model.getClass().getSimpleName();
+            event.score = model.getScore();
+            event.streak = model.getStreak();
+            event.occupiedCells = model.getOccupiedCells().size();
+            event.paletteShapes = palettePieces.size();
+            event.commit();
+        }
+        return true;
+    }
+}
@@ -0,0 +1,168 @@
+package blocks;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Hot path and gameplay metrics, published over JMX as blocks:type=GameMetrics.
+ * <p>
+ * Nothing here is measured unless the model and strategy are wrapped in an InstrumentedModel and
+ * InstrumentedStrategy (and the view given the metrics), which the GUI and SelfPlay only do when
+ * run with -Dblocks.metrics=true, so the uninstrumented game pays nothing for it. Allocation per
+ * call is off by default as reading the thread's allocation counter costs more than the timing.
+ */
+public class GameMetrics implements GameMetricsMXBean {
+    public static final String objectName = "blocks:type=GameMetrics";
+    private static GameMetrics shared = null;
+
+    final OperationStats canPlace = new OperationStats();
+    final OperationStats place = new OperationStats();
+    final OperationStats poppableRegions = new OperationStats();
+    final OperationStats gameOver = new OperationStats();
+    final OperationStats decide = new OperationStats();
+    final OperationStats paint = new OperationStats();
+
+    private final LongAdder games = new LongAdder();
+    private final LongAdder totalScore = new LongAdder();
+    private final LongAdder moves = new LongAdder();
+    private final LongAdder pops = new LongAdder();
+    private final LongAdder streaks = new LongAdder();
+    private final LongAdder streakTotal = new LongAdder();
+    private final AtomicInteger maxStreak = new AtomicInteger();
+    private volatile boolean allocationTracking = false;
+    private final com.sun.management.ThreadMXBean threads;
+
+    public GameMetrics() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        threads = bean instanceof com.sun.management.ThreadMXBean sun && sun.isThreadAllocatedMemorySupported() ? sun : null;
+    }
+
+    public static boolean enabled() {
+        return Boolean.getBoolean("blocks.metrics");
+    }
+
+    // one set of metrics for the whole JVM, registered with the platform MBean server the first time it's asked for
+    public static synchronized GameMetrics shared() {
+        if (shared == null) {
+            shared = new GameMetrics();
+            try {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(shared, new ObjectName(objectName));
+            } catch (InstanceAlreadyExistsException e) {
+                // another class loader got there first, these metrics still work, they just aren't visible
+            } catch (JMException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        return shared;
+    }
+
+    // bytes allocated by this thread so far, or 0 when allocation isn't being tracked
+    long allocatedBytes() {
+        return allocationTracking && threads != null ? threads.getCurrentThreadAllocatedBytes() : 0;
+    }
+
+    // a piece was placed, popping the given number of regions; streak is the streak before and after
+    void move(int popped, int streakBefore, int streakAfter) {
+        moves.increment();
+        pops.add(popped);
+        if (streakBefore > 0 && streakAfter == 0) streakEnded(streakBefore);
+    }
+
+    void gameEnded(int score, int streak) {
+        games.increment();
+        totalScore.add(score);
+        if (streak > 0) streakEnded(streak);
+    }
+
+    private void streakEnded(int length) {
+        streaks.increment();
+        streakTotal.add(length);
+        maxStreak.accumulateAndGet(length, Math::max);
+    }
+
+    @Override
+    public Map<String, OperationStats.Snapshot> getOperations() {
+        Map<String, OperationStats.Snapshot> operations = new LinkedHashMap<>();
+        operations.put("canPlace", canPlace.snapshot());
+        operations.put("place", place.snapshot());
+        operations.put("getPoppableRegions", poppableRegions.snapshot());
+        operations.put("isGameOver", gameOver.snapshot());
+        operations.put("decide", decide.snapshot());
+        operations.put("paint", paint.snapshot());
+        return operations;
+    }
+
+    @Override
+    public long getGamesPlayed() {
+        return games.sum();
+    }
+
+    @Override
+    public double getAverageScore() {
+        long n = games.sum();
+        return n == 0 ? 0 : (double) totalScore.sum() / n;
+    }
+
+    @Override
+    public long getMoves() {
+        return moves.sum();
+    }
+
+    @Override
+    public double getPopsPerMove() {
+        long n = moves.sum();
+        return n == 0 ? 0 : (double) pops.sum() / n;
+    }
+
+    @Override
+    public double getAverageStreakLength() {
+        long n = streaks.sum();
+        return n == 0 ? 0 : (double) streakTotal.sum() / n;
+    }
+
+    @Override
+    public int getMaxStreakLength() {
+        return maxStreak.get();
+    }
+
+    @Override
+    public boolean isAllocationTracking() {
+        return allocationTracking;
+    }
+
+    @Override
+    public void setAllocationTracking(boolean allocationTracking) {
+        this.allocationTracking = allocationTracking;
+    }
+
+    @Override
+    public void reset() {
+        for (OperationStats stats : new OperationStats[]{canPlace, place, poppableRegions, gameOver, decide, paint}) {
+            stats.reset();
+        }
+        games.reset();
+        totalScore.reset();
+        moves.reset();
+        pops.reset();
+        streaks.reset();
+        streakTotal.reset();
+        maxStreak.set(0);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("games: %d  average score: %.1f  moves: %d  pops/move: %.3f  streaks: average %.2f, max %d%n",
+                getGamesPlayed(), getAverageScore(), getMoves(), getPopsPerMove(), getAverageStreakLength(), getMaxStreakLength()));
+        getOperations().forEach((name, snapshot) -> {
+            if (snapshot.getCalls() > 0) sb.append(String.format("%-20s%s%n", name, snapshot));
+        });
+        return sb.toString().stripTrailing();
+    }
+}
@@ -0,0 +1,28 @@
+package blocks;
+
+import java.util.Map;
+
+// what GameMetrics publishes over JMX, under blocks:type=GameMetrics
+public interface GameMetricsMXBean {
+    // per operation: canPlace, place, getPoppableRegions, isGameOver, decide, paint
+    Map<String, OperationStats.Snapshot> getOperations();
+
+    long getGamesPlayed();
+
+    double getAverageScore();
+
+    long getMoves();
+
+    double getPopsPerMove();
+
+    double getAverageStreakLength();
+
+    int getMaxStreakLength();
+
+    // allocation is measured with the thread's allocated bytes counter, which costs more than the timing
+    boolean isAllocationTracking();
+
+    void setAllocationTracking(boolean allocationTracking);
+
+    void reset();
+}
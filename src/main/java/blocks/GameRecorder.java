@@ -0,0 +1,112 @@
+package blocks;
+
+import blocks.BlockShapes.Piece;
+import blocks.BlockShapes.Shape;
+import blocks.BlockShapes.ShapeSet;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+
+/**
+ * Records one game in a compact binary move log.
+ * <p>
+ * A game is a header followed by tagged records, all big-endian:
+ * <pre>
+ * header      int magic "BLKS", byte version, long seed, byte width, byte height, byte sub-square size
+ * palette     byte 1, byte n, n bytes: ShapeSet index of each shape drawn by Palette.replenish
+ * move        byte 2, byte ShapeSet index, byte x, byte y of the anchor
+ * checkpoint  byte 3, int score, short streak, after every move that popped a region
+ * end         byte 4, int moves, int score, short streak
+ * </pre>
+ * Version 1 headers stop after the seed and are always 9x9 games.
+ * Games are self-contained, so a file can hold any number of them one after another and new
+ * games can simply be appended. A move takes four bytes, a palette five.
+ */
+public class GameRecorder {
+    static final int magic = 0x424C4B53;
+    static final byte version = 2;
+    static final byte paletteTag = 1;
+    static final byte moveTag = 2;
+    static final byte checkpointTag = 3;
+    static final byte endTag = 4;
+
+    // shapes are stored by their index in the ShapeSet
+    static final List<Shape> shapes = ShapeSet.shared();
+
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+    private final DataOutputStream out = new DataOutputStream(bytes);
+    private int moves = 0;
+    private int lastScore = 0;
+
+    public GameRecorder(long seed) {
+        this(seed, BoardGeometry.standard);
+    }
+
+    public GameRecorder(long seed, BoardGeometry geometry) {
+        try {
+            out.writeInt(magic);
+            out.writeByte(version);
+            out.writeLong(seed);
+            out.writeByte(geometry.width());
+            out.writeByte(geometry.height());
+            out.writeByte(geometry.subSize());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static int shapeIndex(Shape shape) {
+        // catalogue shapes carry their index, so a drawn shape is recorded as itself even when another entry is equal
+        int index = shape.id() >= 0 ? shape.id() : shapes.indexOf(shape);
+        if (index < 0) throw new IllegalArgumentException("Shape is not in the ShapeSet: " + shape);
+        return index;
+    }
+
+    public void palette(List<Shape> drawn) {
+        try {
+            out.writeByte(paletteTag);
+            out.writeByte(drawn.size());
+            for (Shape shape : drawn) out.writeByte(shapeIndex(shape));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // call after the piece has been placed, so the model's score and streak include it
+    public void move(Piece piece, ModelInterface model) {
+        try {
+            out.writeByte(moveTag);
+            out.writeByte(shapeIndex(piece.shape()));
+            out.writeByte(piece.loc().x());
+            out.writeByte(piece.loc().y());
+            moves++;
+            if (model.getScore() != lastScore) {
+                out.writeByte(checkpointTag);
+                out.writeInt(model.getScore());
+                out.writeShort(model.getStreak());
+                lastScore = model.getScore();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public int getMoves() {
+        return moves;
+    }
+
+    public byte[] end(ModelInterface model) {
+        try {
+            out.writeByte(endTag);
+            out.writeInt(moves);
+            out.writeInt(model.getScore());
+            out.writeShort(model.getStreak());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,227 @@
+package blocks;
+
+import blocks.BlockShapes.Cell;
+import blocks.BlockShapes.Piece;
+import blocks.BlockShapes.Shape;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Replays files of games written by GameRecorder against any ModelInterface.
+ * Each file is memory-mapped and read straight from the buffer, every move is checked for
+ * legality against the recorded palette and board, and the model's score and streak are
+ * compared with the recorded checkpoints. Files are replayed in parallel on a fork/join pool.
+ * A game on a board the model can't play, such as a 16x16 game on a 9x9 model, is reported
+ * as a mismatch rather than replayed.
+ */
+public class GameReplay {
+
+    public record Mismatch(Path file, long seed, int move, String message) {
+        public String toString() {
+            return file.getFileName() + " seed " + seed + " move " + move + ": " + message;
+        }
+    }
+
+    public record FileResult(Path file, int games, long moves, List<Mismatch> mismatches) {
+    }
+
+    public record Report(List<FileResult> files, long elapsedNanos) {
+        public int games() {
+            return files.stream().mapToInt(FileResult::games).sum();
+        }
+
+        public long moves() {
+            return files.stream().mapToLong(FileResult::moves).sum();
+        }
+
+        public List<Mismatch> mismatches() {
+            return files.stream().flatMap(file -> file.mismatches().stream()).toList();
+        }
+
+        public String toString() {
+            StringBuilder s = new StringBuilder(String.format("files: %d  games: %d  moves: %d in %.2fs%n",
+                    files.size(), games(), moves(), elapsedNanos / 1e9));
+            s.append(String.format("games/sec: %.1f  moves/sec: %.1f%n", games() / (elapsedNanos / 1e9), moves() / (elapsedNanos / 1e9)));
+            List<Mismatch> mismatches = mismatches();
+            s.append("mismatches: ").append(mismatches.size());
+            mismatches.stream().limit(20).forEach(mismatch -> s.append("\n  ").append(mismatch));
+            return s.toString();
+        }
+    }
+
+    // the model for a recorded board, or null if it can't play one that size
+    final Function<BoardGeometry, ModelInterface> modelFactory;
+
+    // for a model of the classic 9x9 board only
+    public GameReplay(Supplier<ModelInterface> modelFactory) {
+        this(geometry -> geometry == BoardGeometry.standard ? modelFactory.get() : null);
+    }
+
+    public GameReplay(Function<BoardGeometry, ModelInterface> modelFactory) {
+        this.modelFactory = modelFactory;
+    }
+
+    public FileResult replayFile(Path file) throws IOException {
+        List<Mismatch> mismatches = new ArrayList<>();
+        int games = 0;
+        long moves = 0;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            while (buffer.hasRemaining()) {
+                int start = buffer.position();
+                try {
+                    moves += replayGame(file, buffer, mismatches);
+                    games++;
+                } catch (BufferUnderflowException e) {
+                    mismatches.add(new Mismatch(file, -1, -1, "truncated game at byte " + start));
+                    break;
+                } catch (IllegalStateException e) {
+                    // the rest of the file can't be trusted once a record is unreadable
+                    mismatches.add(new Mismatch(file, -1, -1, e.getMessage() + " in game at byte " + start));
+                    break;
+                }
+            }
+        }
+        return new FileResult(file, games, moves, mismatches);
+    }
+
+    // replays one game from the buffer's position and returns the number of moves read
+    int replayGame(Path file, MappedByteBuffer buffer, List<Mismatch> mismatches) {
+        if (buffer.getInt() != GameRecorder.magic) throw new IllegalStateException("bad magic");
+        byte version = buffer.get();
+        if (version != 1 && version != GameRecorder.version) throw new IllegalStateException("unknown version " + version);
+        long seed = buffer.getLong();
+        BoardGeometry geometry = version == 1 ? BoardGeometry.standard : geometry(buffer.get(), buffer.get(), buffer.get());
+
+        ModelInterface model = modelFactory.apply(geometry);
+        List<Shape> palette = new ArrayList<>();
+        int moves = 0;
+        // once the replay has gone wrong the board no longer matches, so later moves aren't checked
+        boolean diverged = model == null;
+        if (diverged) {
+            mismatches.add(new Mismatch(file, seed, 0, "can't replay a " + geometry.width() + "x" + geometry.height() + " board on this model"));
+        }
+        while (true) {
+            byte tag = buffer.get();
+            switch (tag) {
+                case GameRecorder.paletteTag -> {
+                    palette.clear();
+                    int n = buffer.get();
+                    for (int i = 0; i < n; i++) palette.add(shape(buffer.get()));
+                }
+                case GameRecorder.moveTag -> {
+                    Shape shape = shape(buffer.get());
+                    Piece piece = new Piece(shape, Cell.of(buffer.get(), buffer.get()));
+                    moves++;
+                    if (diverged) continue;
+                    if (!palette.remove(shape)) {
+                        mismatches.add(new Mismatch(file, seed, moves, "shape is not in the palette: " + shape));
+                        diverged = true;
+                    } else if (!model.canPlace(piece)) {
+                        mismatches.add(new Mismatch(file, seed, moves, "illegal move " + piece));
+                        diverged = true;
+                    } else {
+                        model.place(piece);
+                    }
+                }
+                case GameRecorder.checkpointTag -> {
+                    int score = buffer.getInt();
+                    int streak = buffer.getShort();
+                    if (!diverged) diverged = check(file, seed, moves, model, score, streak, mismatches);
+                }
+                case GameRecorder.endTag -> {
+                    int recordedMoves = buffer.getInt();
+                    int score = buffer.getInt();
+                    int streak = buffer.getShort();
+                    if (recordedMoves != moves) {
+                        mismatches.add(new Mismatch(file, seed, moves, "recorded " + recordedMoves + " moves"));
+                    } else if (!diverged) {
+                        check(file, seed, moves, model, score, streak, mismatches);
+                    }
+                    return moves;
+                }
+                default -> throw new IllegalStateException("unknown record tag " + tag);
+            }
+        }
+    }
+
+    private static BoardGeometry geometry(byte width, byte height, byte subSize) {
+        try {
+            return BoardGeometry.of(width & 0xFF, height & 0xFF, subSize & 0xFF);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalStateException("bad board size: " + e.getMessage());
+        }
+    }
+
+    private static Shape shape(byte index) {
+        if (index < 0 || index >= GameRecorder.shapes.size()) throw new IllegalStateException("unknown shape " + index);
+        return GameRecorder.shapes.get(index);
+    }
+
+    // true if the model's score or streak differs from the recording
+    private static boolean check(Path file, long seed, int move, ModelInterface model, int score, int streak, List<Mismatch> mismatches) {
+        if (model.getScore() == score && model.getStreak() == streak) return false;
+        mismatches.add(new Mismatch(file, seed, move, "score " + model.getScore() + " streak " + model.getStreak()
+                + ", recorded score " + score + " streak " + streak));
+        return true;
+    }
+
+    public Report replayAll(List<Path> files, int parallelism) throws InterruptedException, ExecutionException {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            long start = System.nanoTime();
+            List<FileResult> results = pool.submit(() -> files.parallelStream()
+                    .map(file -> {
+                        try {
+                            return replayFile(file);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    })
+                    .toList()).get();
+            return new Report(results, System.nanoTime() - start);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    static List<Path> archiveFiles(Path dir) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(file -> file.toString().endsWith(GameArchive.extension)).sorted().toList();
+        }
+    }
+
+    static GameReplay forModel(String model) {
+        return switch (model) {
+            case "set" -> new GameReplay(ModelSet::new);
+            case "2dArray" -> new GameReplay(Model2dArray::new);
+            case "bitboard" -> new GameReplay(ModelBitboard::new);
+            // the only model for boards of any size, so it replays whatever size was recorded
+            case "words" -> new GameReplay((BoardGeometry geometry) -> new ModelWords(geometry));
+            default -> throw new IllegalArgumentException("Unknown model: " + model);
+        };
+    }
+
+    // usage: java blocks.GameReplay <dir> [set|2dArray|bitboard|words] [threads]
+    public static void main(String[] args) throws Exception {
+        Path dir = Path.of(args.length > 0 ? args[0] : "games");
+        String model = args.length > 1 ? args[1] : "bitboard";
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        System.out.println("dir: " + dir + "  model: " + model + "  threads: " + threads);
+        System.out.println(forModel(model).replayAll(archiveFiles(dir), threads));
+    }
+}
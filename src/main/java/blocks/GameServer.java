@@ -0,0 +1,221 @@
+package blocks;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hosts many GameSessions in one JVM over a small plain-text HTTP protocol on localhost.
+ * <pre>
+ * POST   /games?model=bitboard&amp;seed=1   start a game, the response is its id
+ * GET    /games/{id}/palette              the shapes to place, "index x,y x,y ..." per line
+ * POST   /games/{id}/place?piece=i&amp;x=&amp;y=  place palette shape i with its anchor at (x, y), 409 if illegal
+ * POST   /games/{id}/bot                  let the model's strategy make the next move, 409 if it has none
+ * GET    /games/{id}/board                score, streak, moves, game over and the board as '.' and '#'
+ * DELETE /games/{id}                      end the session
+ * GET    /stats                           sessions and heap in use, add ?gc=true to collect first
+ * </pre>
+ * Every request gets a virtual thread when the JDK has them (21 and later); on older JDKs the
+ * requests share a fixed pool of platform threads. Either way a session holds no thread, only its
+ * model, palette and strategy. Sessions nobody has asked about for the idle timeout are dropped,
+ * and finished games after a shorter grace period, so clients that never DELETE don't fill the heap.
+ * <p>
+ * The JDK's server writes headers and body separately, so each response waits on a delayed ACK
+ * (~40ms) unless the JVM runs with -Dsun.net.httpserver.nodelay=true. main sets it; a program that
+ * embeds the server should pass it on the command line, as it is read once when the server starts.
+ */
+public class GameServer implements AutoCloseable {
+    static final int defaultThreads = 64;
+    static final long defaultIdleTimeoutNanos = TimeUnit.MINUTES.toNanos(10);
+    static final long defaultGameOverTimeoutNanos = TimeUnit.MINUTES.toNanos(1);
+
+    final HttpServer server;
+    final ExecutorService executor;
+    final boolean virtualThreads;
+    final Map<Long, GameSession> sessions = new ConcurrentHashMap<>();
+    private final AtomicLong ids = new AtomicLong();
+    private final AtomicLong expired = new AtomicLong();
+    private final String defaultModel;
+    private final long idleTimeoutNanos;
+    private final long gameOverTimeoutNanos;
+    private final ScheduledExecutorService sweeper;
+
+    public GameServer(int port, String defaultModel) throws IOException {
+        this(port, defaultModel, defaultIdleTimeoutNanos, defaultGameOverTimeoutNanos);
+    }
+
+    public GameServer(int port, String defaultModel, long idleTimeoutNanos, long gameOverTimeoutNanos) throws IOException {
+        this.defaultModel = defaultModel;
+        this.idleTimeoutNanos = idleTimeoutNanos;
+        this.gameOverTimeoutNanos = gameOverTimeoutNanos;
+        ExecutorService virtual = virtualThreadExecutor();
+        this.virtualThreads = virtual != null;
+        this.executor = virtual != null ? virtual : Executors.newFixedThreadPool(defaultThreads, runnable -> {
+            Thread thread = new Thread(runnable, "game-server");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.server = HttpServer.create(new InetSocketAddress("localhost", port), 0);
+        server.createContext("/games", this::handleGames);
+        server.createContext("/stats", this::handleStats);
+        server.setExecutor(executor);
+        server.start();
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "game-server-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(1, Math.min(idleTimeoutNanos, gameOverTimeoutNanos) / 2);
+        sweeper.scheduleAtFixedRate(() -> expireSessions(System.nanoTime()), period, period, TimeUnit.NANOSECONDS);
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    // a virtual thread per request where the JDK has them, found reflectively so this still builds on 17; null before 21
+    static ExecutorService virtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+
+    public GameSession createSession(String model, long seed) {
+        long id = ids.incrementAndGet();
+        GameSession session = new GameSession(id, SelfPlay.forModel(model), seed);
+        sessions.put(id, session);
+        return session;
+    }
+
+    // drops sessions idle for longer than the idle timeout, or finished and idle for longer than the game over one
+    int expireSessions(long now) {
+        int removed = 0;
+        for (GameSession session : sessions.values()) {
+            long idle = now - session.getLastUsed();
+            if (idle > idleTimeoutNanos || idle > gameOverTimeoutNanos && session.isGameOver()) {
+                if (sessions.remove(session.id, session)) removed++;
+            }
+        }
+        expired.addAndGet(removed);
+        return removed;
+    }
+
+    private void handleGames(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            route(exchange);
+        }
+    }
+
+    private void route(HttpExchange exchange) throws IOException {
+        try {
+            String method = exchange.getRequestMethod();
+            String[] path = exchange.getRequestURI().getPath().split("/");
+            Map<String, String> query = query(exchange.getRequestURI());
+            // path is "", "games", then the id and the action
+            if (path.length == 2) {
+                if (!method.equals("POST")) {
+                    send(exchange, 405, "POST to start a game\n");
+                    return;
+                }
+                String model = query.getOrDefault("model", defaultModel);
+                long seed = Long.parseLong(query.getOrDefault("seed", Long.toString(System.nanoTime())));
+                send(exchange, 201, createSession(model, seed).id + "\n");
+                return;
+            }
+            GameSession session = sessions.get(Long.parseLong(path[2]));
+            if (session == null) {
+                send(exchange, 404, "no game " + path[2] + "\n");
+                return;
+            }
+            session.touch(System.nanoTime());
+            String action = path.length > 3 ? path[3] : "";
+            switch (method + " " + action) {
+                case "GET palette" -> send(exchange, 200, session.paletteText());
+                case "GET board" -> send(exchange, 200, session.boardText());
+                case "POST place" -> {
+                    GameSession.Move move = session.place(Integer.parseInt(query.get("piece")),
+                            Integer.parseInt(query.get("x")), Integer.parseInt(query.get("y")));
+                    if (move == null) send(exchange, 409, "illegal move\n");
+                    else send(exchange, 200, GameSession.moveText(move));
+                }
+                case "POST bot" -> {
+                    GameSession.Move move = session.botMove();
+                    if (move == null) send(exchange, 409, "no move\n");
+                    else send(exchange, 200, GameSession.moveText(move));
+                }
+                case "DELETE " -> {
+                    sessions.remove(session.id);
+                    send(exchange, 200, "deleted\n");
+                }
+                default -> send(exchange, 404, "unknown request " + method + " " + exchange.getRequestURI().getPath() + "\n");
+            }
+        } catch (IllegalArgumentException e) {
+            // a missing or malformed number, or an unknown model
+            send(exchange, 400, "bad request: " + e.getMessage() + "\n");
+        }
+    }
+
+    private void handleStats(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (Boolean.parseBoolean(query(exchange.getRequestURI()).get("gc"))) System.gc();
+            long used = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+            send(exchange, 200, "sessions " + sessions.size() + "\n"
+                    + "expired " + expired.get() + "\n"
+                    + "heapUsed " + used + "\n"
+                    + "virtualThreads " + virtualThreads + "\n");
+        }
+    }
+
+    static Map<String, String> query(URI uri) {
+        Map<String, String> query = new HashMap<>();
+        if (uri.getRawQuery() == null) return query;
+        for (String pair : uri.getRawQuery().split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0) query.put(pair.substring(0, eq), pair.substring(eq + 1));
+        }
+        return query;
+    }
+
+    private static void send(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        sweeper.shutdownNow();
+        executor.shutdownNow();
+    }
+
+    // usage: java blocks.GameServer [port] [model]
+    public static void main(String[] args) throws IOException {
+        // before the server starts, which is when the JDK reads it
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) System.setProperty("sun.net.httpserver.nodelay", "true");
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+        String model = args.length > 1 ? args[1] : "bitboard";
+        GameServer server = new GameServer(port, model);
+        System.out.println("serving " + model + " games on http://localhost:" + server.getPort() + "/games"
+                + (server.virtualThreads ? " with virtual threads" : " with " + defaultThreads + " threads"));
+    }
+}
@@ -0,0 +1,129 @@
+package blocks;
+
+import blocks.BlockShapes.Cell;
+import blocks.BlockShapes.Piece;
+import blocks.BlockShapes.Sprite;
+import blocks.BlockShapes.SpriteState;
+
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * One headless game: a model, a seeded palette and, once a bot move is asked for, a strategy.
+ * <p>
+ * A session is just state, with no thread or window of its own, so a server can hold as many as
+ * memory allows and run each request on whatever thread it arrives on. Requests for the same
+ * session are serialised by locking the session.
+ */
+public class GameSession {
+    // the result of a move: the regions popped, and the game after it
+    public record Move(Piece piece, int popped, int score, int streak, boolean gameOver) {
+    }
+
+    final long id;
+    final ModelInterface model;
+    final Palette palette;
+    private final SelfPlay.StrategyFactory strategyFactory;
+    private final Random random;
+    private ModelStrategy strategy = null;
+    private int moves = 0;
+    private boolean gameOver = false;
+    // System.nanoTime() of the last request, so an idle session can be expired
+    private volatile long lastUsed = System.nanoTime();
+
+    // the model and strategy come from the same factories as self-play, e.g. SelfPlay.forModel("bitboard")
+    public GameSession(long id, SelfPlay factories, long seed) {
+        this.id = id;
+        this.random = new Random(seed);
+        this.model = factories.modelFactory.get();
+        this.palette = new Palette(random);
+        this.strategyFactory = factories.strategyFactory;
+    }
+
+    public void touch(long now) {
+        lastUsed = now;
+    }
+
+    public long getLastUsed() {
+        return lastUsed;
+    }
+
+    public synchronized boolean isGameOver() {
+        return gameOver;
+    }
+
+    public synchronized int getMoves() {
+        return moves;
+    }
+
+    // places palette sprite index at (x, y), or returns null if that isn't a legal move
+    public synchronized Move place(int index, int x, int y) {
+        List<Sprite> sprites = palette.getSprites();
+        if (gameOver || index < 0 || index >= sprites.size() || sprites.get(index).state != SpriteState.IN_PALETTE) return null;
+        Sprite sprite = sprites.get(index);
+        Piece piece = new Piece(sprite.shape, Cell.of(x, y));
+        if (!model.canPlace(piece)) return null;
+        return play(sprite, piece);
+    }
+
+    // lets the strategy play the first palette sprite it has a move for, or returns null if it has none
+    public synchronized Move botMove() {
+        if (gameOver) return null;
+        if (strategy == null) strategy = strategyFactory.create(model, palette, random);
+        for (Sprite sprite : palette.getSprites()) {
+            if (sprite.state != SpriteState.IN_PALETTE) continue;
+            Cell startingPoint = strategy.getValidStartingPoint(sprite.shape);
+            if (startingPoint != null) return play(sprite, new Piece(sprite.shape, startingPoint));
+        }
+        return null;
+    }
+
+    private Move play(Sprite sprite, Piece piece) {
+        int popped = model.placeCountingPops(piece);
+        sprite.state = SpriteState.PLACED;
+        palette.replenish();
+        moves++;
+        gameOver = model.isGameOver(palette.getShapesToPlace());
+        return new Move(piece, popped, model.getScore(), model.getStreak(), gameOver);
+    }
+
+    // the palette sprites still to place, one per line as "index x,y x,y ..." with the shape's cells
+    public synchronized String paletteText() {
+        StringBuilder sb = new StringBuilder();
+        List<Sprite> sprites = palette.getSprites();
+        for (int i = 0; i < sprites.size(); i++) {
+            if (sprites.get(i).state != SpriteState.IN_PALETTE) continue;
+            sb.append(i);
+            for (Cell cell : sprites.get(i).shape) sb.append(' ').append(cell.x()).append(',').append(cell.y());
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+
+    // the score, streak and moves, then the board as rows of '.' and '#'
+    public synchronized String boardText() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("score ").append(model.getScore()).append('\n');
+        sb.append("streak ").append(model.getStreak()).append('\n');
+        sb.append("moves ").append(moves).append('\n');
+        sb.append("gameOver ").append(gameOver).append('\n');
+        BoardGeometry geometry = model.getGeometry();
+        Set<Cell> occupied = model.getOccupiedCells();
+        for (int y = 0; y < geometry.height(); y++) {
+            for (int x = 0; x < geometry.width(); x++) {
+                sb.append(occupied.contains(Cell.of(x, y)) ? '#' : '.');
+            }
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+
+    static String moveText(Move move) {
+        return "placed " + move.piece().loc().x() + "," + move.piece().loc().y() + "\n"
+                + "popped " + move.popped() + "\n"
+                + "score " + move.score() + "\n"
+                + "streak " + move.streak() + "\n"
+                + "gameOver " + move.gameOver() + "\n";
+    }
+}
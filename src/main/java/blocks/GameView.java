@@ -2,7 +2,8 @@ package blocks;
 
 import javax.swing.*;
 import java.awt.*;
-import java.util.List;
+import java.awt.image.BufferedImage;
+import java.util.BitSet;
 import java.util.Set;
 
 import blocks.BlockShapes.Piece;
@@ -11,6 +12,7 @@ import blocks.BlockShapes.Cell;
 import blocks.BlockShapes.ShapeSet;
 import blocks.BlockShapes.SpriteState;
 import blocks.BlockShapes.Sprite;
+import blocks.PlacementPreview.Preview;
 
 // class should work in a basic way as provided if all the todos are implemented in the other classes
 // though you need to provide or complete the implementations for the methods in todos below
@@ -20,24 +22,42 @@ public class GameView extends JComponent {
     ModelInterface model;
     Palette palette;
     int margin = 5;
+    final BoardGeometry geometry;
     int shapeRegionHeight;
     int cellSize = 40;
     int paletteCellSize = 20;
     int shrinkSize = 30;
     Piece ghostShape = null;
-    List<Shape> poppableRegions = null;
+    // shared with the controller, so each ghost and pop overlay is worked out once per anchor
+    final PlacementPreview placementPreview;
+    Preview preview = null;
+    // the grid is drawn into cached images: the empty grid once, and the occupied cells
+    // on top of it whenever the board changes; turn off to draw everything on every frame
+    boolean cacheLayers = true;
+    private BufferedImage backgroundImage = null;
+    private BufferedImage boardImage = null;
+    private long boardImageKey;
+    // the area covered by the dragged sprite, ghost and overlay when they were last asked for
+    private Rectangle dragBounds = null;
+    // when set, every frame's paint time goes into the metrics
+    GameMetrics metrics = null;
 
     public GameView(ModelInterface model, Palette palette) {
         this.model = model;
         this.palette = palette;
-        this.shapeRegionHeight = cellSize * ModelInterface.height / 2;
+        this.placementPreview = new PlacementPreview(model);
+        this.geometry = model.getGeometry();
+        // bigger boards get smaller cells, so the window stays about the same size as the 9x9 one
+        this.cellSize = Math.min(cellSize, 400 / geometry.width());
+        this.shrinkSize = cellSize * 3 / 4;
+        this.shapeRegionHeight = cellSize * geometry.height() / 2;
     }
 
     private void paintShapePalette(Graphics g, int cellSize) {
         // paint a background colour
         // then get the list of current shapes from the palette
         g.setColor(Color.LIGHT_GRAY);
-        g.fillRect(margin, margin + ModelInterface.height * cellSize, ModelInterface.width * cellSize, shapeRegionHeight);
+        g.fillRect(margin, margin + geometry.height() * cellSize, geometry.width() * cellSize, shapeRegionHeight);
 
         for (Sprite sprite : palette.getSprites().stream().filter(sprite -> sprite.state != SpriteState.PLACED).toList()) {
             int x = sprite.px;
@@ -61,21 +81,19 @@ public class GameView extends JComponent {
     }
 
     private void paintPoppableRegions(Graphics g, int cellSize) {
-        if (ghostShape == null) return;
-        poppableRegions = model.getPoppableRegions(ghostShape);
-        if (poppableRegions.isEmpty()) return;
+        if (preview == null || preview.poppedCells().isEmpty()) return;
         g.setColor(new Color(0, 0, 0, 75)); // black with 50% transparency
-        for (int x = 0; x < ModelInterface.width; x++) {
-            for (int y = 0; y < ModelInterface.height; y++) {
-                if (cellInPoppableRegion(new Cell(x, y))) {
-                    g.fill3DRect(margin + x * cellSize, margin + y * cellSize, cellSize, cellSize, true);
-                }
-            }
+        // just the set bits, in one pass
+        BitSet popped = preview.poppedCells();
+        for (int i = popped.nextSetBit(0); i >= 0; i = popped.nextSetBit(i + 1)) {
+            int x = i % geometry.width();
+            int y = i / geometry.width();
+            g.fill3DRect(margin + x * cellSize, margin + y * cellSize, cellSize, cellSize, true);
         }
     }
 
     private boolean cellInPoppableRegion(Cell cell) {
-        return poppableRegions != null && poppableRegions.stream().anyMatch(shape -> shape.contains(cell));
+        return preview != null && preview.pops(cell.x(), cell.y());
     }
 
     private Piece getGhostShape() {
@@ -88,7 +106,7 @@ public class GameView extends JComponent {
     }
 
     private void paintGhostCell(Graphics g, int cellSize, int x, int y) {
-        boolean isPoppableCell = cellInPoppableRegion(new Cell(x,y));
+        boolean isPoppableCell = cellInPoppableRegion(Cell.of(x, y));
         g.setColor(isPoppableCell ? new Color(0, 0, 0, 75) : new Color(0, 255, 255, 128));
         if (isPoppableCell) {
             g.fill3DRect(margin + x * cellSize, margin + y * cellSize, cellSize, cellSize, true);
@@ -99,9 +117,10 @@ public class GameView extends JComponent {
 
     private void paintGhostShape(Graphics g, int cellSize) {
         ghostShape = getGhostShape();
-        if (ghostShape == null || !model.canPlace(ghostShape)) return;
+        preview = ghostShape == null ? null : placementPreview.get(ghostShape);
+        if (preview == null || !preview.legal()) return;
         g.setColor(new Color(0, 255, 255, 128)); // Cyan with 50% transparency
-        for (Cell cell : ghostShape.cells()) {
+        for (Cell cell : preview.ghostCells()) {
             paintGhostCell(g, cellSize, cell.x(), cell.y());
         }
     }
@@ -109,26 +128,125 @@ public class GameView extends JComponent {
     private void paintGrid(Graphics g) {
         int x0 = margin;
         int y0 = margin;
-        int width = ModelInterface.width * cellSize;
-        int height = ModelInterface.height * cellSize;
+        int width = geometry.width() * cellSize;
+        int height = geometry.height() * cellSize;
         Set<Cell> occupiedCells = model.getOccupiedCells();
         g.setColor(Color.BLACK);
         g.drawRect(x0, y0, width, height);
-        for (int x = 0; x < ModelInterface.width; x++) {
-            for (int y = 0; y < ModelInterface.height; y++) {
-                g.setColor(occupiedCells.contains(new Cell(x, y)) ? Color.green : Color.white);
+        for (int x = 0; x < geometry.width(); x++) {
+            for (int y = 0; y < geometry.height(); y++) {
+                g.setColor(occupiedCells.contains(Cell.of(x, y)) ? Color.green : Color.white);
                 g.fill3DRect(x0 + x * cellSize, y0 + y * cellSize, cellSize, cellSize, true);
             }
         }
     }
 
+    // an opaque image of just the grid, one pixel bigger each way for the mini-grid strokes,
+    // drawn with the same coordinates as the view
+    private BufferedImage newGridImage() {
+        return new BufferedImage(geometry.width() * cellSize + 2, geometry.height() * cellSize + 2,
+                BufferedImage.TYPE_INT_RGB);
+    }
+
+    private Graphics2D gridGraphics(BufferedImage image) {
+        Graphics2D g = image.createGraphics();
+        g.translate(1 - margin, 1 - margin);
+        return g;
+    }
+
+    // the empty grid, drawn once
+    private BufferedImage getBackgroundImage() {
+        if (backgroundImage == null) {
+            backgroundImage = newGridImage();
+            Graphics2D g = gridGraphics(backgroundImage);
+            g.setColor(Color.BLACK);
+            g.drawRect(margin, margin, geometry.width() * cellSize, geometry.height() * cellSize);
+            g.setColor(Color.white);
+            for (int x = 0; x < geometry.width(); x++) {
+                for (int y = 0; y < geometry.height(); y++) {
+                    g.fill3DRect(margin + x * cellSize, margin + y * cellSize, cellSize, cellSize, true);
+                }
+            }
+            g.dispose();
+        }
+        return backgroundImage;
+    }
+
+    // the grid with the occupied cells and mini-grids, redrawn only when the board has changed
+    private BufferedImage getBoardImage() {
+        long key = model.getZobristKey();
+        if (boardImage == null || key != boardImageKey) {
+            if (boardImage == null) boardImage = newGridImage();
+            Graphics2D g = gridGraphics(boardImage);
+            g.drawImage(getBackgroundImage(), margin - 1, margin - 1, null);
+            g.setColor(Color.green);
+            for (Cell cell : model.getOccupiedCells()) {
+                g.fill3DRect(margin + cell.x() * cellSize, margin + cell.y() * cellSize, cellSize, cellSize, true);
+            }
+            paintMiniGrids(g);
+            g.dispose();
+            boardImageKey = key;
+        }
+        return boardImage;
+    }
+
+    // the pixel area of a cell of the grid
+    private Rectangle cellBounds(int x, int y) {
+        return new Rectangle(margin + x * cellSize, margin + y * cellSize, cellSize + 1, cellSize + 1);
+    }
+
+    // the pixel area of a sprite being dragged, following the layout in paintShapePalette
+    private Rectangle spriteBounds(Sprite sprite) {
+        Rectangle bounds = null;
+        Cell first = sprite.shape.get(0);
+        for (Cell cell : sprite.shape) {
+            int cellX = cell.x() * (cellSize / 4) + sprite.px + (cell.x() - first.x()) * shrinkSize;
+            int cellY = cell.y() * cellSize + sprite.py;
+            // the outline is drawn with the two pixel mini-grid stroke
+            bounds = union(bounds, new Rectangle(cellX - 1, cellY - 1, shrinkSize + 3, shrinkSize + 3));
+        }
+        return bounds;
+    }
+
+    // everything a drag can draw over the cached board: the sprite, its ghost and the pop overlay
+    Rectangle getDragBounds() {
+        Rectangle bounds = null;
+        for (Sprite sprite : palette.getSprites()) {
+            if (sprite.state == SpriteState.IN_PLAY) bounds = union(bounds, spriteBounds(sprite));
+        }
+        Piece ghost = getGhostShape();
+        Preview ghostPreview = ghost == null ? null : placementPreview.get(ghost);
+        if (ghostPreview != null && ghostPreview.legal()) {
+            for (Cell cell : ghostPreview.ghostCells()) {
+                bounds = union(bounds, cellBounds(cell.x(), cell.y()));
+            }
+            BitSet popped = ghostPreview.poppedCells();
+            for (int i = popped.nextSetBit(0); i >= 0; i = popped.nextSetBit(i + 1)) {
+                bounds = union(bounds, cellBounds(i % geometry.width(), i / geometry.width()));
+            }
+        }
+        return bounds == null ? new Rectangle() : bounds;
+    }
+
+    private static Rectangle union(Rectangle bounds, Rectangle r) {
+        return bounds == null ? r : bounds.union(r);
+    }
+
+    // repaint just the areas the drag has moved from and to
+    public void repaintDrag() {
+        Rectangle bounds = getDragBounds();
+        if (dragBounds != null) repaint(dragBounds);
+        repaint(bounds);
+        dragBounds = bounds;
+    }
+
     private void paintMiniGrids(Graphics2D g) {
         // for now, we're going to do this based on the cellSize multiple
-        int s = ModelInterface.subSize;
+        int s = geometry.subSize();
         g.setStroke(new BasicStroke(2));
         g.setColor(Color.BLACK);
-        for (int x = 0; x < ModelInterface.width; x += s) {
-            for (int y = 0; y < ModelInterface.height; y += s) {
+        for (int x = 0; x < geometry.width(); x += s) {
+            for (int y = 0; y < geometry.height(); y += s) {
                 g.drawRect(margin + x * cellSize, margin + y * cellSize, s * cellSize, s * cellSize);
             }
         }
@@ -136,9 +254,29 @@ public class GameView extends JComponent {
 
     @Override
     public void paint(Graphics g) {
+        GameEvents.Frame frame = new GameEvents.Frame();
+        frame.begin();
+        if (metrics == null) {
+            paintFrame(g);
+        } else {
+            long bytes = metrics.allocatedBytes();
+            long start = System.nanoTime();
+            paintFrame(g);
+            metrics.paint.record(System.nanoTime() - start, metrics.allocatedBytes() - bytes);
+        }
+        frame.painted(g.getClipBounds(), cacheLayers);
+    }
+
+    private void paintFrame(Graphics g) {
         super.paint(g);
-        paintGrid(g);
-        paintMiniGrids((Graphics2D) g); // cosmetic
+        if (cacheLayers) {
+            g.drawImage(getBoardImage(), margin - 1, margin - 1, null);
+            // the palette has always been outlined with the stroke left by paintMiniGrids
+            ((Graphics2D) g).setStroke(new BasicStroke(2));
+        } else {
+            paintGrid(g);
+            paintMiniGrids((Graphics2D) g); // cosmetic
+        }
         paintGhostShape(g, cellSize);
         paintPoppableRegions(g, cellSize);
         paintShapePalette(g, cellSize);
@@ -147,8 +285,8 @@ public class GameView extends JComponent {
     @Override
     public Dimension getPreferredSize() {
         return new Dimension(
-                ModelInterface.width * cellSize + 2 * margin,
-                ModelInterface.height * cellSize + 2 * margin + shapeRegionHeight
+                geometry.width() * cellSize + 2 * margin,
+                geometry.height() * cellSize + 2 * margin + shapeRegionHeight
         );
     }
 
@@ -156,7 +294,7 @@ public class GameView extends JComponent {
         JFrame frame = new JFrame("Clean Blocks");
         frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         ModelInterface model = new ModelSet();
-        Shape shape = new ShapeSet().getShapes().get(0);
+        Shape shape = ShapeSet.shared().get(0);
         Piece piece = new Piece(shape, new Cell(0, 0));
         Palette palette = new Palette();
         model.place(piece);
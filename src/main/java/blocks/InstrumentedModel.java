@@ -0,0 +1,145 @@
+package blocks;
+
+import blocks.BlockShapes.Cell;
+import blocks.BlockShapes.Piece;
+import blocks.BlockShapes.Shape;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A ModelInterface that passes every call to another model, timing the hot ones
+ * (canPlace, place, getPoppableRegions and isGameOver) into a GameMetrics, and
+ * counting moves, pops, streaks and finished games as they happen.
+ */
+public class InstrumentedModel implements ModelInterface {
+    final ModelInterface model;
+    final GameMetrics metrics;
+    private boolean gameEnded = false;
+
+    public InstrumentedModel(ModelInterface model, GameMetrics metrics) {
+        this.model = model;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public boolean canPlace(Piece piece) {
+        long bytes = metrics.allocatedBytes();
+        long start = System.nanoTime();
+        boolean result = model.canPlace(piece);
+        metrics.canPlace.record(System.nanoTime() - start, metrics.allocatedBytes() - bytes);
+        return result;
+    }
+
+    @Override
+    public void place(Piece piece) {
+        placeCountingPops(piece);
+    }
+
+    @Override
+    public int placeCountingPops(Piece piece) {
+        int streak = model.getStreak();
+        // counted outside the timing, so place is measured on its own
+        int popped = model.getPoppableRegions(piece).size();
+        long bytes = metrics.allocatedBytes();
+        long start = System.nanoTime();
+        model.place(piece);
+        metrics.place.record(System.nanoTime() - start, metrics.allocatedBytes() - bytes);
+        metrics.move(popped, streak, model.getStreak());
+        return popped;
+    }
+
+    @Override
+    public void remove(Shape region) {
+        model.remove(region);
+    }
+
+    @Override
+    public boolean isComplete(Shape region) {
+        return model.isComplete(region);
+    }
+
+    @Override
+    public boolean isGameOver(List<Shape> palettePieces) {
+        long bytes = metrics.allocatedBytes();
+        long start = System.nanoTime();
+        boolean result = model.isGameOver(palettePieces);
+        metrics.gameOver.record(System.nanoTime() - start, metrics.allocatedBytes() - bytes);
+        // the game is asked about more than once after it's over, but only counts once
+        if (result && !gameEnded) {
+            gameEnded = true;
+            metrics.gameEnded(model.getScore(), model.getStreak());
+        }
+        return result;
+    }
+
+    @Override
+    public List<Shape> getPoppableRegions(Piece piece) {
+        long bytes = metrics.allocatedBytes();
+        long start = System.nanoTime();
+        List<Shape> result = model.getPoppableRegions(piece);
+        metrics.poppableRegions.record(System.nanoTime() - start, metrics.allocatedBytes() - bytes);
+        return result;
+    }
+
+    @Override
+    public BitSet getPoppableCells(Piece piece) {
+        return model.getPoppableCells(piece);
+    }
+
+    @Override
+    public BitSet getLegalAnchors(Shape shape) {
+        return model.getLegalAnchors(shape);
+    }
+
+    @Override
+    public int[] getAnchorPopCounts(Shape shape) {
+        return model.getAnchorPopCounts(shape);
+    }
+
+    @Override
+    public Set<Cell> getOccupiedCells() {
+        return model.getOccupiedCells();
+    }
+
+    @Override
+    public int getScore() {
+        return model.getScore();
+    }
+
+    @Override
+    public int getStreak() {
+        return model.getStreak();
+    }
+
+    @Override
+    public long getZobristKey() {
+        return model.getZobristKey();
+    }
+
+    @Override
+    public void keepHistory(int limit) {
+        model.keepHistory(limit);
+    }
+
+    @Override
+    public boolean undo() {
+        return model.undo();
+    }
+
+    @Override
+    public boolean redo() {
+        return model.redo();
+    }
+
+    @Override
+    public BoardGeometry getGeometry() {
+        return model.getGeometry();
+    }
+
+    @Override
+    public String toString() {
+        return model.toString();
+    }
+}
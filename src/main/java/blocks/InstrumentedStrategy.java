@@ -0,0 +1,40 @@
+package blocks;
+
+import blocks.BlockShapes.Cell;
+import blocks.BlockShapes.Piece;
+import blocks.BlockShapes.Shape;
+
+// a ModelStrategy that passes every call to another strategy, timing its decisions into a GameMetrics
+public class InstrumentedStrategy implements ModelStrategy {
+    final ModelStrategy strategy;
+    final GameMetrics metrics;
+
+    public InstrumentedStrategy(ModelStrategy strategy, GameMetrics metrics) {
+        this.strategy = strategy;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public Cell getValidStartingPoint(Shape shape) {
+        long bytes = metrics.allocatedBytes();
+        long start = System.nanoTime();
+        Cell result = strategy.getValidStartingPoint(shape);
+        metrics.decide.record(System.nanoTime() - start, metrics.allocatedBytes() - bytes);
+        return result;
+    }
+
+    @Override
+    public int getStreak() {
+        return strategy.getStreak();
+    }
+
+    @Override
+    public boolean wouldPopRegion(Piece piece) {
+        return strategy.wouldPopRegion(piece);
+    }
+
+    @Override
+    public String toString() {
+        return strategy.toString();
+    }
+}
@@ -0,0 +1,220 @@
+package blocks;
+
+import blocks.BlockShapes.Cell;
+import blocks.BlockShapes.Shape;
+import blocks.PlacementTable.Placement;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class LegalAnchorCache {
+    // keeps, for each shape that has been asked about, the set of its placements that are legal
+    // on the current board; after a move only the placements whose footprint covers a cell that
+    // changed are checked again, so game over detection doesn't rescan every anchor
+    // queries bring the trackers up to date, so every method locks the cache: the EDT can paint
+    // from a model while the strategy worker asks the same model about its moves
+
+    // a mirror of the board, bit index is y * width + x
+    private long occupiedLo = 0L;
+    private long occupiedHi = 0L;
+    // cells changed since the trackers were last brought up to date
+    private long dirtyLo = 0L;
+    private long dirtyHi = 0L;
+    private final Map<Shape, Tracker> trackers = new HashMap<>();
+    private static final Map<Shape, Cover> covers = new ConcurrentHashMap<>();
+
+    // what doesn't depend on the board, worked out once per shape and shared by every model
+    static final class Cover {
+        // the shape the cover was built for, also used as the key of each model's tracker
+        final Shape shape;
+        final Placement[] placements;
+        // for each cell, the placements covering it, as a bitmask over the placements array
+        final long[] coverLo = new long[ModelInterface.width * ModelInterface.height];
+        final long[] coverHi = new long[ModelInterface.width * ModelInterface.height];
+
+        Cover(Shape shape) {
+            this.shape = shape;
+            this.placements = PlacementTable.getShared().placements(shape);
+            for (int i = 0; i < placements.length; i++) {
+                for (Cell cell : placements[i].cells()) {
+                    int index = cell.y() * ModelInterface.width + cell.x();
+                    if (i < 64) coverLo[index] |= 1L << i;
+                    else coverHi[index] |= 1L << (i - 64);
+                }
+            }
+        }
+    }
+
+    static Cover cover(Shape shape) {
+        Cover cover = covers.get(shape);
+        return cover != null ? cover : covers.computeIfAbsent(new Shape(shape), Cover::new);
+    }
+
+    static final class Tracker {
+        final Placement[] placements;
+        final long[] coverLo;
+        final long[] coverHi;
+        // the legal placements, as a bitmask over the placements array
+        long legalLo;
+        long legalHi;
+
+        Tracker(Cover cover, long occupiedLo, long occupiedHi) {
+            this.placements = cover.placements;
+            this.coverLo = cover.coverLo;
+            this.coverHi = cover.coverHi;
+            recheck(~0L, ~0L, occupiedLo, occupiedHi);
+        }
+
+        // check the given placements again against the board
+        void recheck(long affectedLo, long affectedHi, long occupiedLo, long occupiedHi) {
+            for (long bits = affectedLo; bits != 0; bits &= bits - 1) {
+                int i = Long.numberOfTrailingZeros(bits);
+                if (i >= placements.length) break;
+                if (fits(placements[i], occupiedLo, occupiedHi)) legalLo |= 1L << i;
+                else legalLo &= ~(1L << i);
+            }
+            for (long bits = affectedHi; bits != 0; bits &= bits - 1) {
+                int i = 64 + Long.numberOfTrailingZeros(bits);
+                if (i >= placements.length) break;
+                if (fits(placements[i], occupiedLo, occupiedHi)) legalHi |= 1L << (i - 64);
+                else legalHi &= ~(1L << (i - 64));
+            }
+        }
+
+        private static boolean fits(Placement placement, long occupiedLo, long occupiedHi) {
+            return (placement.lo() & occupiedLo) == 0 && (placement.hi() & occupiedHi) == 0;
+        }
+
+        int count() {
+            return Long.bitCount(legalLo) + Long.bitCount(legalHi);
+        }
+    }
+
+    // call once for every cell that goes from empty to occupied, off-grid cells are ignored
+    synchronized void cellAdded(Cell cell) {
+        if (!ModelBitboard.inBounds(cell)) return;
+        int bit = RegionCounts.cellIndex(cell);
+        if (bit < 64) {
+            occupiedLo |= 1L << bit;
+            dirtyLo |= 1L << bit;
+        } else {
+            occupiedHi |= 1L << (bit - 64);
+            dirtyHi |= 1L << (bit - 64);
+        }
+    }
+
+    // call once for every cell that goes from occupied to empty
+    synchronized void cellRemoved(Cell cell) {
+        if (!ModelBitboard.inBounds(cell)) return;
+        int bit = RegionCounts.cellIndex(cell);
+        if (bit < 64) {
+            occupiedLo &= ~(1L << bit);
+            dirtyLo |= 1L << bit;
+        } else {
+            occupiedHi &= ~(1L << (bit - 64));
+            dirtyHi |= 1L << (bit - 64);
+        }
+    }
+
+    // for boards that keep their own bitboard: take the whole new board, the changed cells are worked out here
+    synchronized void boardChanged(long lo, long hi) {
+        dirtyLo |= occupiedLo ^ lo;
+        dirtyHi |= occupiedHi ^ hi;
+        occupiedLo = lo;
+        occupiedHi = hi;
+    }
+
+    // bring every tracker up to date with the cells changed since the last query
+    private void sync() {
+        if ((dirtyLo | dirtyHi) == 0) return;
+        for (Tracker tracker : trackers.values()) {
+            long affectedLo = 0L;
+            long affectedHi = 0L;
+            for (long bits = dirtyLo; bits != 0; bits &= bits - 1) {
+                int cell = Long.numberOfTrailingZeros(bits);
+                affectedLo |= tracker.coverLo[cell];
+                affectedHi |= tracker.coverHi[cell];
+            }
+            for (long bits = dirtyHi; bits != 0; bits &= bits - 1) {
+                int cell = 64 + Long.numberOfTrailingZeros(bits);
+                affectedLo |= tracker.coverLo[cell];
+                affectedHi |= tracker.coverHi[cell];
+            }
+            tracker.recheck(affectedLo, affectedHi, occupiedLo, occupiedHi);
+        }
+        dirtyLo = 0L;
+        dirtyHi = 0L;
+    }
+
+    private Tracker tracker(Shape shape) {
+        Tracker tracker = trackers.get(shape);
+        if (tracker == null) {
+            Cover cover = cover(shape);
+            tracker = new Tracker(cover, occupiedLo, occupiedHi);
+            trackers.put(cover.shape, tracker);
+        }
+        return tracker;
+    }
+
+    // the number of anchors where the shape can be placed
+    public synchronized int legalAnchorCount(Shape shape) {
+        sync();
+        return tracker(shape).count();
+    }
+
+    // every anchor where the shape can be placed, indexed y * width + x
+    public synchronized BitSet legalAnchors(Shape shape) {
+        sync();
+        Tracker tracker = tracker(shape);
+        BitSet anchors = new BitSet(ModelInterface.width * ModelInterface.height);
+        for (long bits = tracker.legalLo; bits != 0; bits &= bits - 1) {
+            anchors.set(RegionCounts.cellIndex(tracker.placements[Long.numberOfTrailingZeros(bits)].anchor()));
+        }
+        for (long bits = tracker.legalHi; bits != 0; bits &= bits - 1) {
+            anchors.set(RegionCounts.cellIndex(tracker.placements[64 + Long.numberOfTrailingZeros(bits)].anchor()));
+        }
+        return anchors;
+    }
+
+    // for every anchor, indexed y * width + x, the number of regions placing the shape there would pop,
+    // or -1 where it can't be placed; only the legal placements and the regions each one touches are looked at
+    public synchronized int[] anchorPopCounts(Shape shape) {
+        sync();
+        Tracker tracker = tracker(shape);
+        int[] counts = new int[ModelInterface.width * ModelInterface.height];
+        Arrays.fill(counts, -1);
+        for (long bits = tracker.legalLo; bits != 0; bits &= bits - 1) {
+            Placement placement = tracker.placements[Long.numberOfTrailingZeros(bits)];
+            counts[RegionCounts.cellIndex(placement.anchor())] = popCount(placement);
+        }
+        for (long bits = tracker.legalHi; bits != 0; bits &= bits - 1) {
+            Placement placement = tracker.placements[64 + Long.numberOfTrailingZeros(bits)];
+            counts[RegionCounts.cellIndex(placement.anchor())] = popCount(placement);
+        }
+        return counts;
+    }
+
+    private int popCount(Placement placement) {
+        long lo = occupiedLo | placement.lo();
+        long hi = occupiedHi | placement.hi();
+        int pops = 0;
+        for (long bits = placement.regions(); bits != 0; bits &= bits - 1) {
+            int region = Long.numberOfTrailingZeros(bits);
+            if ((lo & ModelBitboard.regionLo[region]) == ModelBitboard.regionLo[region]
+                    && (hi & ModelBitboard.regionHi[region]) == ModelBitboard.regionHi[region]) pops++;
+        }
+        return pops;
+    }
+
+    public synchronized boolean anyPlaceable(List<Shape> shapes) {
+        sync();
+        for (Shape shape : shapes) {
+            if (tracker(shape).count() > 0) return true;
+        }
+        return false;
+    }
+}
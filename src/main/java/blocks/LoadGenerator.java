@@ -0,0 +1,139 @@
+package blocks;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Load for a GameServer: opens many sessions, then has a number of client threads play them all
+ * with bot moves, and reports the move latency percentiles and how many sessions fit in a GB of heap.
+ * With no server URL it starts one in this JVM on a free port.
+ */
+public class LoadGenerator {
+
+    public record Report(int sessions, long moves, long elapsedNanos, long[] sortedLatencies, long bytesPerSession,
+                         long bytesPerPlayedSession) {
+        public long percentileNanos(double p) {
+            if (sortedLatencies.length == 0) return 0;
+            int index = (int) Math.ceil(p / 100 * sortedLatencies.length) - 1;
+            return sortedLatencies[Math.max(0, Math.min(sortedLatencies.length - 1, index))];
+        }
+
+        static long sessionsPerGB(long bytesPerSession) {
+            return bytesPerSession <= 0 ? 0 : (1L << 30) / bytesPerSession;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("sessions: %d  moves: %d in %.2fs  moves/sec: %.0f%n", sessions, moves, elapsedNanos / 1e9, moves / (elapsedNanos / 1e9))
+                    + String.format("move latency p50: %.0fus  p99: %.0fus%n", percentileNanos(50) / 1e3, percentileNanos(99) / 1e3)
+                    + String.format("heap per new session: %d bytes (%d sessions/GB), per played session: %d bytes (%d sessions/GB)",
+                    bytesPerSession, sessionsPerGB(bytesPerSession), bytesPerPlayedSession, sessionsPerGB(bytesPerPlayedSession));
+        }
+    }
+
+    final URI base;
+    final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+    public LoadGenerator(URI base) {
+        this.base = base;
+    }
+
+    private HttpResponse<String> send(String method, String path) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(base.resolve(path)).method(method, HttpRequest.BodyPublishers.noBody()).build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    long heapUsed() throws IOException, InterruptedException {
+        String stats = send("GET", "/stats?gc=true").body();
+        return stats.lines().filter(line -> line.startsWith("heapUsed ")).mapToLong(line -> Long.parseLong(line.substring(9))).findFirst().orElse(0);
+    }
+
+    // opens the sessions, then plays them to the end or maxMoves, spread over the client threads
+    public Report run(int nSessions, int clients, String model, int maxMoves) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(clients);
+        try {
+            long heapBefore = heapUsed();
+            List<Future<Long>> created = new ArrayList<>();
+            for (int i = 0; i < nSessions; i++) {
+                long seed = i;
+                created.add(pool.submit(() -> Long.parseLong(send("POST", "/games?model=" + model + "&seed=" + seed).body().trim())));
+            }
+            long[] ids = new long[nSessions];
+            for (int i = 0; i < nSessions; i++) ids[i] = created.get(i).get();
+            long heapCreated = heapUsed();
+
+            long start = System.nanoTime();
+            List<Future<long[]>> played = new ArrayList<>();
+            for (int c = 0; c < clients; c++) {
+                int client = c;
+                played.add(pool.submit(() -> {
+                    // each client plays every clients-th session, one move at a time on each in turn
+                    long[] latencies = new long[16];
+                    int n = 0;
+                    List<Long> live = new ArrayList<>();
+                    for (int i = client; i < nSessions; i += clients) live.add(ids[i]);
+                    for (int move = 0; move < maxMoves && !live.isEmpty(); move++) {
+                        for (int i = live.size() - 1; i >= 0; i--) {
+                            long begin = System.nanoTime();
+                            HttpResponse<String> response = send("POST", "/games/" + live.get(i) + "/bot");
+                            long nanos = System.nanoTime() - begin;
+                            if (response.statusCode() != 200) {
+                                live.remove(i);
+                                continue;
+                            }
+                            if (n == latencies.length) latencies = Arrays.copyOf(latencies, n * 2);
+                            latencies[n++] = nanos;
+                            if (response.body().contains("gameOver true")) live.remove(i);
+                        }
+                    }
+                    return Arrays.copyOf(latencies, n);
+                }));
+            }
+            long[] all = new long[0];
+            for (Future<long[]> future : played) {
+                long[] latencies = future.get();
+                int from = all.length;
+                all = Arrays.copyOf(all, from + latencies.length);
+                System.arraycopy(latencies, 0, all, from, latencies.length);
+            }
+            long elapsed = System.nanoTime() - start;
+            long heapPlayed = heapUsed();
+            Arrays.sort(all);
+            return new Report(nSessions, all.length, elapsed, all,
+                    (heapCreated - heapBefore) / nSessions, (heapPlayed - heapBefore) / nSessions);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    // usage: java blocks.LoadGenerator [sessions] [clients] [model] [max moves per session] [server url]
+    public static void main(String[] args) throws Exception {
+        int sessions = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int clients = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+        String model = args.length > 2 ? args[2] : "bitboard";
+        int maxMoves = args.length > 3 ? Integer.parseInt(args[3]) : 50;
+        GameServer server = null;
+        URI base;
+        if (args.length > 4) {
+            base = URI.create(args[4]);
+        } else {
+            server = new GameServer(0, model);
+            base = URI.create("http://localhost:" + server.getPort());
+        }
+        System.out.println("server: " + base + "  model: " + model + "  sessions: " + sessions + "  clients: " + clients);
+        try {
+            System.out.println(new LoadGenerator(base).run(sessions, clients, model, maxMoves));
+        } finally {
+            if (server != null) server.close();
+        }
+    }
+}
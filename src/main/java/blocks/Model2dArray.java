@@ -13,18 +13,27 @@ package blocks;
  */
 
 import blocks.BlockShapes.*;
+import blocks.PlacementTable.Placement;
 
 import java.util.*;
 
-public class Model2dArray extends State2dArray implements ModelInterface {
-    List<Shape> regions = new RegionHelper().allRegions();
+public class Model2dArray extends State2dArray implements StandardModel {
+    static final List<Shape> regions = RegionCounts.regions;
+    RegionCounts regionCounts = new RegionCounts();
+    long zobristKey = 0L;
+    LegalAnchorCache legalAnchors = new LegalAnchorCache();
+    // only kept once keepHistory is called, so headless games don't pay for a copy of the board every move
+    UndoHistory history = null;
+    // the occupied cells as a bitboard too, so a snapshot is just a copy of two longs
+    long occupiedLo = 0L;
+    long occupiedHi = 0L;
 
     public Model2dArray() {
         grid = new boolean[width][height];
         // initially all cells are empty (false) - they would be by default anyway
         // but this makes it explicit
         for (int i = 0; i < width; i++) {
-            for (int j = 0; j < 9; j++) {
+            for (int j = 0; j < height; j++) {
                 grid[i][j] = false;
             }
         }
@@ -35,29 +44,128 @@ public class Model2dArray extends State2dArray implements ModelInterface {
         return score;
     }
 
+    @Override
+    public int getStreak() {
+        return streak;
+    }
+
+    @Override
+    public long getZobristKey() {
+        return zobristKey;
+    }
+
     @Override
     public boolean canPlace(Piece piece) {
         // interestingly, for canPlace we could also use sets to store the occupied cells and then check if the shape's cells intersect with the occupied cells
         // check if the shape can be placed at this loc
-        return piece.cells().stream().noneMatch(cell -> cell.x() >= grid.length || cell.y() >= grid.length || cell.x() < 0 || cell.y() < 0 || getOccupiedCells().contains(cell));
+        // the shape's bounding box rules out anchors too near the edge at once, leaving only the cells to look at
+        Cell loc = piece.loc();
+        Shape shape = piece.shape();
+        if (!shape.fitsAt(loc.x(), loc.y(), width, height)) return false;
+        for (int offset : shape.offsets()) {
+            if (grid[loc.x() + Shape.offsetX(offset)][loc.y() + Shape.offsetY(offset)]) return false;
+        }
+        return true;
     }
 
     @Override
     public void place(Piece piece) {
+        GameEvents.Placement event = new GameEvents.Placement();
+        event.begin();
+        if (history != null) history.changing(snapshot());
         List<Shape> poppableRegions = getPoppableRegions(piece);
-        for (Cell cell : piece.cells()) {
-            grid[cell.x()][cell.y()] = true;
+        Cell loc = piece.loc();
+        for (int offset : piece.shape().offsets()) {
+            int x = loc.x() + Shape.offsetX(offset);
+            int y = loc.y() + Shape.offsetY(offset);
+            if (!grid[x][y]) {
+                regionCounts.cellAdded(Cell.of(x, y));
+                legalAnchors.cellAdded(Cell.of(x, y));
+                zobristKey ^= Zobrist.cell(x, y);
+                toggleOccupied(x, y);
+            }
+            grid[x][y] = true;
         }
         for (Shape region : poppableRegions) {
             remove(region);
         }
         score += (int) (Math.pow(poppableRegions.size(), 2) * 10);
         streak = poppableRegions.isEmpty() ? 0 : ++streak;
+        GameEvents.popped(poppableRegions, streak);
+        event.commit(this, piece, poppableRegions.size());
+    }
+
+    @Override
+    public BoardState snapshot() {
+        return new BoardState(occupiedLo, occupiedHi, score, streak);
+    }
+
+    @Override
+    public void restore(BoardState state) {
+        if (history != null) history.changing(snapshot());
+        setState(state);
+    }
+
+    @Override
+    public void keepHistory(int limit) {
+        history = limit > 0 ? new UndoHistory(limit) : null;
+    }
+
+    @Override
+    public boolean undo() {
+        if (history == null) return false;
+        BoardState state = history.undo(snapshot());
+        if (state == null) return false;
+        setState(state);
+        return true;
+    }
+
+    @Override
+    public boolean redo() {
+        if (history == null) return false;
+        BoardState state = history.redo(snapshot());
+        if (state == null) return false;
+        setState(state);
+        return true;
+    }
+
+    private void toggleOccupied(int x, int y) {
+        int bit = y * width + x;
+        if (bit < 64) occupiedLo ^= 1L << bit;
+        else occupiedHi ^= 1L << (bit - 64);
+    }
+
+    // sets just the cells that differ from the state
+    private void setState(BoardState state) {
+        for (long bits = occupiedLo ^ state.lo(); bits != 0; bits &= bits - 1) setCell(BoardState.cell(Long.numberOfTrailingZeros(bits)), state);
+        for (long bits = occupiedHi ^ state.hi(); bits != 0; bits &= bits - 1) setCell(BoardState.cell(64 + Long.numberOfTrailingZeros(bits)), state);
+        score = state.score();
+        streak = state.streak();
+    }
+
+    private void setCell(Cell c, BoardState state) {
+        boolean occupied = state.isOccupied(c.x(), c.y());
+        grid[c.x()][c.y()] = occupied;
+        if (occupied) {
+            regionCounts.cellAdded(c);
+            legalAnchors.cellAdded(c);
+        } else {
+            regionCounts.cellRemoved(c);
+            legalAnchors.cellRemoved(c);
+        }
+        zobristKey ^= Zobrist.cell(c);
+        toggleOccupied(c.x(), c.y());
     }
 
     @Override
     public void remove(Shape region) {
         for (Cell cell : region) {
+            if (grid[cell.x()][cell.y()]) {
+                regionCounts.cellRemoved(cell);
+                legalAnchors.cellRemoved(cell);
+                zobristKey ^= Zobrist.cell(cell);
+                toggleOccupied(cell.x(), cell.y());
+            }
             grid[cell.x()][cell.y()] = false;
         }
     }
@@ -69,38 +177,53 @@ public class Model2dArray extends State2dArray implements ModelInterface {
     }
 
     public boolean wouldBeComplete(Shape region, List<Cell> toAdd) {
-        // check if the shape is complete, i.e. all cells are occupied
-        Set<Cell> tempOccupiedCells = new HashSet<>(getOccupiedCells());
-        tempOccupiedCells.addAll(toAdd);
-        return tempOccupiedCells.containsAll(region);
+        // check if the shape would be complete, i.e. all cells are occupied or about to be
+        for (Cell cell : region) {
+            if (!grid[cell.x()][cell.y()] && !toAdd.contains(cell)) return false;
+        }
+        return true;
     }
 
     @Override
     public boolean isGameOver(List<Shape> palettePieces) {
         // if any shape in the palette can be placed, the game is not over
-        for (Shape shape : palettePieces) {
-            if (canPlaceAnywhere(shape)) return false;
-        }
-        return true;
+        // the legal anchors of each palette shape are kept up to date as cells change
+        return GameEvents.gameOver(this, palettePieces, !legalAnchors.anyPlaceable(palettePieces));
     }
 
     public boolean canPlaceAnywhere(Shape shape) {
         // check if the shape can be placed anywhere on the grid
-        // by checking if it can be placed at any loc
-        for (int row = 0; row < grid.length; row++) {
-            for (int column = 0; column < grid[row].length; column++) {
-                if (canPlace(new Piece(shape, new Cell(row, column)))) return true;
-            }
+        return legalAnchors.legalAnchorCount(shape) > 0;
+    }
+
+    boolean canPlace(Placement placement) {
+        for (Cell cell : placement.cells()) {
+            if (grid[cell.x()][cell.y()]) return false;
         }
-        return false;
+        return true;
     }
 
     @Override
     public List<Shape> getPoppableRegions(Piece piece) {
-        // iterate over the regions
-        List<Shape> poppableRegions = new ArrayList<>();
-        if (!canPlace(piece)) return poppableRegions;
-        return regions.stream().filter(region -> wouldBeComplete(region, piece.cells())).toList();
+        // the region counts let us check just the regions that the piece's cells fall in
+        if (!canPlace(piece)) return new ArrayList<>();
+        return regionCounts.regionsIn(regionCounts.completedBy(piece));
+    }
+
+    @Override
+    public BitSet getPoppableCells(Piece piece) {
+        if (!canPlace(piece)) return new BitSet();
+        return regionCounts.cellsIn(regionCounts.completedBy(piece));
+    }
+
+    @Override
+    public BitSet getLegalAnchors(Shape shape) {
+        return legalAnchors.legalAnchors(shape);
+    }
+
+    @Override
+    public int[] getAnchorPopCounts(Shape shape) {
+        return legalAnchors.anchorPopCounts(shape);
     }
 
     @Override
@@ -108,7 +231,7 @@ public class Model2dArray extends State2dArray implements ModelInterface {
         Set<Cell> occupiedCells = new HashSet<>();
         for (int row = 0; row < grid.length; row++) {
             for (int column = 0; column < grid[row].length; column++) {
-                if (grid[row][column]) occupiedCells.add(new Cell(row, column));
+                if (grid[row][column]) occupiedCells.add(Cell.of(row, column));
             }
         }
         return occupiedCells;
@@ -0,0 +1,254 @@
+package blocks;
+
+import blocks.BlockShapes.Piece;
+import blocks.BlockShapes.Shape;
+import blocks.BlockShapes.Cell;
+import blocks.PlacementTable.Placement;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+public class ModelBitboard extends StateBitboard implements StandardModel {
+    static final List<Shape> regions = RegionCounts.regions;
+    // one mask per region, in the same order as the regions list, shared with searches over raw bitboards
+    static final long[] regionLo = new long[regions.size()];
+    static final long[] regionHi = new long[regions.size()];
+    long zobristKey = 0L;
+    LegalAnchorCache legalAnchors = new LegalAnchorCache();
+    // only kept once keepHistory is called, so headless games don't pay for a copy of the board every move
+    UndoHistory history = null;
+
+    static {
+        initialiseRegionMasks();
+    }
+
+    public ModelBitboard() {
+        super();
+    }
+
+    private static void initialiseRegionMasks() {
+        for (int i = 0; i < regions.size(); i++) {
+            for (Cell cell : regions.get(i)) {
+                int bit = bitIndex(cell);
+                if (bit < 64) regionLo[i] |= 1L << bit;
+                else regionHi[i] |= 1L << (bit - 64);
+            }
+        }
+    }
+
+    static boolean inBounds(Cell cell) {
+        return ModelInterface.inBounds(cell.x(), cell.y());
+    }
+
+    static int bitIndex(Cell cell) {
+        return cell.y() * width + cell.x();
+    }
+
+    static boolean onGrid(Piece piece) {
+        return piece.shape().fitsAt(piece.loc().x(), piece.loc().y(), width, height);
+    }
+
+    // the low and high words of the mask of the cells covered by a piece, which must be on the grid;
+    // returned one at a time into the caller's locals, so queries share no state and allocate nothing
+    static long pieceLo(Piece piece) {
+        long mask = 0L;
+        for (int offset : piece.shape().offsets()) {
+            int bit = (piece.loc().y() + Shape.offsetY(offset)) * width + piece.loc().x() + Shape.offsetX(offset);
+            if (bit < 64) mask |= 1L << bit;
+        }
+        return mask;
+    }
+
+    static long pieceHi(Piece piece) {
+        long mask = 0L;
+        for (int offset : piece.shape().offsets()) {
+            int bit = (piece.loc().y() + Shape.offsetY(offset)) * width + piece.loc().x() + Shape.offsetX(offset);
+            if (bit >= 64) mask |= 1L << (bit - 64);
+        }
+        return mask;
+    }
+
+    @Override
+    public int getScore() {
+        return score;
+    }
+
+    @Override
+    public int getStreak() {
+        return streak;
+    }
+
+    @Override
+    public long getZobristKey() {
+        return zobristKey;
+    }
+
+    @Override
+    public boolean canPlace(Piece piece) {
+        // placeable if every cell is on the grid and none of them intersect the occupied bits
+        return onGrid(piece) && (pieceLo(piece) & lo) == 0 && (pieceHi(piece) & hi) == 0;
+    }
+
+    @Override
+    public void place(Piece piece) {
+        GameEvents.Placement event = new GameEvents.Placement();
+        event.begin();
+        if (history != null) history.changing(snapshot());
+        List<Shape> poppableRegions = getPoppableRegions(piece);
+        if (onGrid(piece)) {
+            long pieceLo = pieceLo(piece);
+            long pieceHi = pieceHi(piece);
+            zobristKey = Zobrist.toggle(zobristKey, pieceLo & ~lo, pieceHi & ~hi);
+            lo |= pieceLo;
+            hi |= pieceHi;
+        }
+        for (Shape region : poppableRegions) {
+            remove(region);
+        }
+        legalAnchors.boardChanged(lo, hi);
+        score += (int) (Math.pow(poppableRegions.size(), 2) * 10);
+        streak = poppableRegions.isEmpty() ? 0 : ++streak;
+        GameEvents.popped(poppableRegions, streak);
+        event.commit(this, piece, poppableRegions.size());
+    }
+
+    @Override
+    public BoardState snapshot() {
+        return new BoardState(lo, hi, score, streak);
+    }
+
+    @Override
+    public void restore(BoardState state) {
+        if (history != null) history.changing(snapshot());
+        setState(state);
+    }
+
+    @Override
+    public void keepHistory(int limit) {
+        history = limit > 0 ? new UndoHistory(limit) : null;
+    }
+
+    @Override
+    public boolean undo() {
+        if (history == null) return false;
+        BoardState state = history.undo(snapshot());
+        if (state == null) return false;
+        setState(state);
+        return true;
+    }
+
+    @Override
+    public boolean redo() {
+        if (history == null) return false;
+        BoardState state = history.redo(snapshot());
+        if (state == null) return false;
+        setState(state);
+        return true;
+    }
+
+    private void setState(BoardState state) {
+        zobristKey = Zobrist.toggle(zobristKey, lo ^ state.lo(), hi ^ state.hi());
+        lo = state.lo();
+        hi = state.hi();
+        legalAnchors.boardChanged(lo, hi);
+        score = state.score();
+        streak = state.streak();
+    }
+
+    @Override
+    public void remove(Shape region) {
+        for (Cell cell : region) {
+            if (!inBounds(cell)) continue;
+            int bit = bitIndex(cell);
+            long word = bit < 64 ? lo : hi;
+            if ((word & (1L << (bit & 63))) != 0) zobristKey ^= Zobrist.cell(cell);
+            if (bit < 64) lo &= ~(1L << bit);
+            else hi &= ~(1L << (bit - 64));
+        }
+        legalAnchors.boardChanged(lo, hi);
+    }
+
+    @Override
+    public boolean isComplete(Shape region) {
+        for (Cell cell : region) {
+            if (!inBounds(cell)) return false;
+            int bit = bitIndex(cell);
+            long word = bit < 64 ? lo : hi;
+            if ((word & (1L << (bit & 63))) == 0) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public boolean isGameOver(List<Shape> palettePieces) {
+        // if any shape in the palette can be placed, the game is not over
+        // the legal anchors of each palette shape are kept up to date as cells change
+        return GameEvents.gameOver(this, palettePieces, !legalAnchors.anyPlaceable(palettePieces));
+    }
+
+    public boolean canPlaceAnywhere(Shape shape) {
+        return legalAnchors.legalAnchorCount(shape) > 0;
+    }
+
+    boolean canPlace(Placement placement) {
+        return (placement.lo() & lo) == 0 && (placement.hi() & hi) == 0;
+    }
+
+    @Override
+    public List<Shape> getPoppableRegions(Piece piece) {
+        // a region pops when its mask is contained in the occupied bits plus the piece bits
+        List<Shape> poppableRegions = new ArrayList<>();
+        if (!canPlace(piece)) return poppableRegions;
+        long newLo = lo | pieceLo(piece);
+        long newHi = hi | pieceHi(piece);
+        // only the regions that the piece's cells fall in can become complete
+        for (long bits = RegionCounts.touchedBy(piece); bits != 0; bits &= bits - 1) {
+            int i = Long.numberOfTrailingZeros(bits);
+            if ((newLo & regionLo[i]) == regionLo[i] && (newHi & regionHi[i]) == regionHi[i]) {
+                poppableRegions.add(regions.get(i));
+            }
+        }
+        return poppableRegions;
+    }
+
+    @Override
+    public BitSet getPoppableCells(Piece piece) {
+        // the union of the masks of the regions that would be completed, the bit layout is the BitSet's
+        if (!canPlace(piece)) return new BitSet();
+        long newLo = lo | pieceLo(piece);
+        long newHi = hi | pieceHi(piece);
+        long poppedLo = 0L;
+        long poppedHi = 0L;
+        for (long bits = RegionCounts.touchedBy(piece); bits != 0; bits &= bits - 1) {
+            int i = Long.numberOfTrailingZeros(bits);
+            if ((newLo & regionLo[i]) == regionLo[i] && (newHi & regionHi[i]) == regionHi[i]) {
+                poppedLo |= regionLo[i];
+                poppedHi |= regionHi[i];
+            }
+        }
+        return BitSet.valueOf(new long[]{poppedLo, poppedHi});
+    }
+
+    @Override
+    public BitSet getLegalAnchors(Shape shape) {
+        return legalAnchors.legalAnchors(shape);
+    }
+
+    @Override
+    public int[] getAnchorPopCounts(Shape shape) {
+        return legalAnchors.anchorPopCounts(shape);
+    }
+
+    @Override
+    public Set<Cell> getOccupiedCells() {
+        Set<Cell> occupiedCells = new HashSet<>();
+        for (int bit = 0; bit < width * height; bit++) {
+            long word = bit < 64 ? lo : hi;
+            if ((word & (1L << (bit & 63))) != 0) occupiedCells.add(Cell.of(bit % width, bit / width));
+        }
+        return occupiedCells;
+    }
+}
@@ -4,18 +4,32 @@ import blocks.BlockShapes.Shape;
 import blocks.BlockShapes.Piece;
 import blocks.BlockShapes.Cell;
 
+import java.util.BitSet;
 import java.util.List;
 import java.util.Set;
 
+// queries (everything but place, remove, undo, redo and a StandardModel's restore) share no scratch state, so several threads can
+// ask one model about its moves at once, e.g. the strategy worker while the EDT paints; moves still need one thread
 public interface ModelInterface {
     int width = 9;  // these are constants
     int height = 9;
     int subSize = 3;
 
+    static boolean inBounds(int x, int y) {
+        return x >= 0 && y >= 0 && x < width && y < height;
+    }
+
     boolean canPlace(Piece piece);
 
     void place(Piece piece);
 
+    // places the piece and returns how many regions it popped, counted before the move
+    default int placeCountingPops(Piece piece) {
+        int popped = getPoppableRegions(piece).size();
+        place(piece);
+        return popped;
+    }
+
     void remove(Shape region);
 
     boolean isComplete(Shape region);
@@ -24,7 +38,37 @@ public interface ModelInterface {
 
     List<Shape> getPoppableRegions(Piece piece);
 
+    // the cells, indexed by y * width + x, that placing the piece would clear; empty if it can't be placed
+    BitSet getPoppableCells(Piece piece);
+
+    // every anchor the shape can be placed at, indexed y * width + x like getPoppableCells
+    BitSet getLegalAnchors(Shape shape);
+
+    // for every anchor, indexed the same way, how many regions placing the shape there would pop, -1 where it can't go;
+    // one call works out a whole shape's moves, rather than a canPlace and getPoppableRegions per anchor
+    int[] getAnchorPopCounts(Shape shape);
+
     Set<Cell> getOccupiedCells();
 
     int getScore();
+
+    int getStreak();
+
+    // the Zobrist key of the occupied cells, kept up to date on place and remove
+    long getZobristKey();
+
+    // from now on keeps the states before the last limit moves for undo and redo, 0 to keep none;
+    // a model keeps none until this is called, so only a game that offers undo pays for it
+    void keepHistory(int limit);
+
+    // goes back to the state before the last place or restore, false if there's nothing to undo or no history is kept
+    boolean undo();
+
+    // goes forward again after an undo, false if a move has been made since or there's nothing to redo
+    boolean redo();
+
+    // the size of the board, the classic 9x9 unless the model was built for another
+    default BoardGeometry getGeometry() {
+        return BoardGeometry.standard;
+    }
 }
\ No newline at end of file
@@ -3,67 +3,173 @@ package blocks;
 import blocks.BlockShapes.Piece;
 import blocks.BlockShapes.Shape;
 import blocks.BlockShapes.Cell;
+import blocks.PlacementTable.Placement;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
-public class ModelSet extends StateSet implements ModelInterface {
+public class ModelSet extends StateSet implements StandardModel {
 
-    Set<Cell> locations = new HashSet<>();
-    List<Shape> regions = new RegionHelper().allRegions();
-
-    // we need a constructor to initialise the regions
-    public ModelSet() {
-        super();
-        initialiseLocations();
-    }
+    // the grid locations and the regions are the same for every game, so they're shared
+    static final Set<Cell> locations = gridLocations();
+    static final List<Shape> regions = RegionCounts.regions;
+    RegionCounts regionCounts = new RegionCounts();
+    long zobristKey = 0L;
+    LegalAnchorCache legalAnchors = new LegalAnchorCache();
+    // only kept once keepHistory is called, so headless games don't pay for a copy of the board every move
+    UndoHistory history = null;
+    // the occupied cells as a bitboard too, so a snapshot is just a copy of two longs
+    long occupiedLo = 0L;
+    long occupiedHi = 0L;
 
     @Override
     public int getScore() {
         return score;
     }
 
-    private void initialiseLocations() {
+    @Override
+    public int getStreak() {
+        return streak;
+    }
+
+    @Override
+    public long getZobristKey() {
+        return zobristKey;
+    }
+
+    private static Set<Cell> gridLocations() {
         // having all grid locations in a set is in line with the set based approach
+        Set<Cell> locations = new HashSet<>();
         for (int i = 0; i < width; i++) {
             for (int j = 0; j < height; j++) {
-                locations.add(new Cell(i, j));
+                locations.add(Cell.of(i, j));
             }
         }
+        return Set.copyOf(locations);
     }
 
     @Override
     public boolean canPlace(Piece piece) {
         // can be placed if the cells are not occupied i.e. not in the occupiedCells set
         // though each one must be within the bounds of the grid
-        for (Cell c : piece.cells()) {
-            if (occupiedCells.contains(c)) {
+        // the shape's packed offsets and the shared grid cells mean nothing is allocated here,
+        // and its bounding box checks the bounds of every cell at once
+        Cell loc = piece.loc();
+        Shape shape = piece.shape();
+        if (!shape.fitsAt(loc.x(), loc.y(), width, height)) return false;
+        for (int offset : shape.offsets()) {
+            if (occupiedCells.contains(Cell.of(loc.x() + Shape.offsetX(offset), loc.y() + Shape.offsetY(offset)))) {
                 return false;
             }
         }
-        return locations.containsAll(piece.cells());
+        return true;
     }
 
     @Override
     public void place(Piece piece) {
+        GameEvents.Placement event = new GameEvents.Placement();
+        event.begin();
         // add the cells in the Piece to the occupiedCells set
         // then remove all the poppable regions
         // increment the score as function of the regions popped
+        if (history != null) history.changing(snapshot());
         List<Shape> poppableRegions = getPoppableRegions(piece);
-        occupiedCells.addAll(piece.cells());
+        Cell loc = piece.loc();
+        for (int offset : piece.shape().offsets()) {
+            Cell c = Cell.of(loc.x() + Shape.offsetX(offset), loc.y() + Shape.offsetY(offset));
+            if (occupiedCells.add(c)) {
+                regionCounts.cellAdded(c);
+                legalAnchors.cellAdded(c);
+                zobristKey ^= Zobrist.cell(c);
+                toggleOccupied(c);
+            }
+        }
         for (Shape region : poppableRegions) {
             remove(region);
         }
         score += (int) (Math.pow(poppableRegions.size(), 2) * 10);
         streak = poppableRegions.isEmpty() ? 0 : ++streak;
+        GameEvents.popped(poppableRegions, streak);
+        event.commit(this, piece, poppableRegions.size());
+    }
+
+    @Override
+    public BoardState snapshot() {
+        return new BoardState(occupiedLo, occupiedHi, score, streak);
+    }
+
+    @Override
+    public void restore(BoardState state) {
+        if (history != null) history.changing(snapshot());
+        setState(state);
+    }
+
+    @Override
+    public void keepHistory(int limit) {
+        history = limit > 0 ? new UndoHistory(limit) : null;
+    }
+
+    @Override
+    public boolean undo() {
+        if (history == null) return false;
+        BoardState state = history.undo(snapshot());
+        if (state == null) return false;
+        setState(state);
+        return true;
+    }
+
+    @Override
+    public boolean redo() {
+        if (history == null) return false;
+        BoardState state = history.redo(snapshot());
+        if (state == null) return false;
+        setState(state);
+        return true;
+    }
+
+    private void toggleOccupied(Cell c) {
+        if (!ModelInterface.inBounds(c.x(), c.y())) return;
+        int bit = ModelBitboard.bitIndex(c);
+        if (bit < 64) occupiedLo ^= 1L << bit;
+        else occupiedHi ^= 1L << (bit - 64);
+    }
+
+    // adds and removes just the cells that differ from the state
+    private void setState(BoardState state) {
+        for (long bits = occupiedLo ^ state.lo(); bits != 0; bits &= bits - 1) setCell(BoardState.cell(Long.numberOfTrailingZeros(bits)), state);
+        for (long bits = occupiedHi ^ state.hi(); bits != 0; bits &= bits - 1) setCell(BoardState.cell(64 + Long.numberOfTrailingZeros(bits)), state);
+        score = state.score();
+        streak = state.streak();
+    }
+
+    private void setCell(Cell c, BoardState state) {
+        if (state.isOccupied(c.x(), c.y())) {
+            occupiedCells.add(c);
+            regionCounts.cellAdded(c);
+            legalAnchors.cellAdded(c);
+        } else {
+            occupiedCells.remove(c);
+            regionCounts.cellRemoved(c);
+            legalAnchors.cellRemoved(c);
+        }
+        zobristKey ^= Zobrist.cell(c);
+        toggleOccupied(c);
     }
 
     @Override
     public void remove(Shape region) {
-        // remove the cells from the occupiedCells set
-        occupiedCells.removeAll(region);
+        // remove the cells from the occupiedCells set, keeping the region counts in step
+        for (Cell c : region) {
+            if (occupiedCells.remove(c)) {
+                regionCounts.cellRemoved(c);
+                legalAnchors.cellRemoved(c);
+                zobristKey ^= Zobrist.cell(c);
+                toggleOccupied(c);
+            }
+        }
     }
 
     @Override
@@ -75,34 +181,44 @@ public class ModelSet extends StateSet implements ModelInterface {
     @Override
     public boolean isGameOver(List<Shape> palettePieces) {
         // if any shape in the palette can be placed, the game is not over
-        // use a helper function to check whether an individual shape can be placed anywhere
-        for (Shape s : palettePieces) {
-            if (canPlaceAnywhere(s)) return false;
-        }
-        return true;
+        // the legal anchors of each palette shape are kept up to date as cells change
+        return GameEvents.gameOver(this, palettePieces, !legalAnchors.anyPlaceable(palettePieces));
     }
 
     public boolean canPlaceAnywhere(Shape shape) {
         // check if the shape can be placed anywhere on the grid
-        // by checking if it can be placed at any loc
-        for (Cell c : locations) {
-            if (canPlace(new Piece(shape, c))) {
-                return true;}
+        return legalAnchors.legalAnchorCount(shape) > 0;
+    }
+
+    boolean canPlace(Placement placement) {
+        for (Cell c : placement.cells()) {
+            if (occupiedCells.contains(c)) return false;
         }
-        return false;
+        return true;
     }
 
     @Override
     public List<Shape> getPoppableRegions(Piece piece) {
         // return the regions that would be popped if the piece is placed
-        // to do this we need to iterate over the regions and check if the piece overlaps enough to complete it
-        // i.e. we can make a new set of occupied cells and check if the region is complete
-        // if it is complete, we add it to the list of regions to be popped
-        ArrayList<Shape> poppableRegions = new ArrayList<>();
-        if (!canPlace(piece)) return poppableRegions;
-        Set<Cell> tempOccupiedCells = new HashSet<>(occupiedCells);
-        tempOccupiedCells.addAll(piece.cells());
-        return regions.stream().filter(tempOccupiedCells::containsAll).toList();
+        // the region counts let us check just the regions that the piece's cells fall in
+        if (!canPlace(piece)) return new ArrayList<>();
+        return regionCounts.regionsIn(regionCounts.completedBy(piece));
+    }
+
+    @Override
+    public BitSet getPoppableCells(Piece piece) {
+        if (!canPlace(piece)) return new BitSet();
+        return regionCounts.cellsIn(regionCounts.completedBy(piece));
+    }
+
+    @Override
+    public BitSet getLegalAnchors(Shape shape) {
+        return legalAnchors.legalAnchors(shape);
+    }
+
+    @Override
+    public int[] getAnchorPopCounts(Shape shape) {
+        return legalAnchors.anchorPopCounts(shape);
     }
 
     @Override
@@ -4,8 +4,33 @@ import blocks.BlockShapes.Cell;
 import blocks.BlockShapes.Shape;
 import blocks.BlockShapes.Piece;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
 public interface ModelStrategy {
    Cell getValidStartingPoint(Shape shape);
    int getStreak();
    boolean wouldPopRegion(Piece piece);
+
+   // the random strategies' policy on a board of any size: the first anchor, x-major, that pops something,
+   // otherwise a random legal one, or null if the shape can't be placed
+   static Cell firstPopOrRandom(ModelStrategy strategy, ModelInterface model, Shape shape, Random random) {
+      GameEvents.Decision event = new GameEvents.Decision();
+      event.begin();
+      // one call gives every legal anchor and what it pops, and only anchors in the shape's window can be legal
+      int[] popCounts = model.getAnchorPopCounts(shape);
+      BoardGeometry geometry = model.getGeometry();
+      List<Cell> validStartingPoints = new ArrayList<>();
+      for (int x = shape.firstAnchorX(); x <= shape.lastAnchorX(geometry.width()); x++) {
+         for (int y = shape.firstAnchorY(); y <= shape.lastAnchorY(geometry.height()); y++) {
+            int pops = popCounts[geometry.index(x, y)];
+            if (pops < 0) continue;
+            if (pops > 0) return event.decided(strategy, shape, validStartingPoints.size() + 1, Cell.of(x, y));
+            validStartingPoints.add(Cell.of(x, y));
+         }
+      }
+      if (validStartingPoints.isEmpty()) return event.decided(strategy, shape, 0, null);
+      return event.decided(strategy, shape, validStartingPoints.size(), validStartingPoints.get(random.nextInt(validStartingPoints.size())));
+   }
 }
@@ -0,0 +1,287 @@
+package blocks;
+
+import blocks.BlockShapes.Cell;
+import blocks.BlockShapes.Piece;
+import blocks.BlockShapes.Shape;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+public class ModelWords implements ModelInterface {
+    // a board of any geometry held as a bitset in long words, bit index y * width + x
+    // together with a count of the occupied cells in each region, so that canPlace only looks at
+    // the piece's cells and finding pops only looks at the regions those cells fall in;
+    // nothing here scales with the area of the board except getOccupiedCells and isGameOver
+    final BoardGeometry geometry;
+    final long[] words;
+    final int[] fill;
+    int score = 0;
+    int streak = 0;
+    long zobristKey = 0L;
+    // the board's words, score and streak before each move, for undo and redo on a board of any size;
+    // only kept once keepHistory is called
+    UndoHistory history = null;
+
+    public ModelWords() {
+        this(BoardGeometry.standard);
+    }
+
+    public ModelWords(BoardGeometry geometry) {
+        this.geometry = geometry;
+        this.words = new long[(geometry.cells() + 63) >>> 6];
+        this.fill = new int[geometry.regions.size()];
+    }
+
+    @Override
+    public BoardGeometry getGeometry() {
+        return geometry;
+    }
+
+    boolean isOccupied(int index) {
+        return (words[index >>> 6] & (1L << index)) != 0;
+    }
+
+    @Override
+    public boolean canPlace(Piece piece) {
+        Shape shape = piece.shape();
+        return shape.fitsAt(piece.loc().x(), piece.loc().y(), geometry.width, geometry.height)
+                && isFree(shape.offsets(), piece.loc().x(), piece.loc().y());
+    }
+
+    // whether the cells under a shape with these offsets are empty, the anchor must keep it on the board
+    boolean isFree(int[] offsets, int anchorX, int anchorY) {
+        for (int offset : offsets) {
+            if (isOccupied(geometry.index(anchorX + Shape.offsetX(offset), anchorY + Shape.offsetY(offset)))) return false;
+        }
+        return true;
+    }
+
+    // working space for completedBy, made per call rather than kept on the model, so queries on one model can
+    // run on several threads; added is left zeroed, so one scratch can be reused across a query's anchors
+    private static final class Scratch {
+        final int[] added;
+        final int[] completed;
+        final int[] touched;
+
+        Scratch(int regions) {
+            added = new int[regions];
+            completed = new int[regions];
+            touched = new int[regions];
+        }
+    }
+
+    private Scratch scratch() {
+        return new Scratch(geometry.regions.size());
+    }
+
+    // fills the scratch's completed with the regions the piece would complete and returns how many there are
+    // the piece must be placeable
+    private int completedBy(Scratch scratch, Piece piece) {
+        return completedBy(scratch, piece.shape().offsets(), piece.loc().x(), piece.loc().y());
+    }
+
+    private int completedBy(Scratch scratch, int[] offsets, int anchorX, int anchorY) {
+        int[] added = scratch.added;
+        int[] completed = scratch.completed;
+        int[] touched = scratch.touched;
+        int nTouched = 0;
+        for (int offset : offsets) {
+            int index = geometry.index(anchorX + Shape.offsetX(offset), anchorY + Shape.offsetY(offset));
+            for (int region : geometry.regionsByCell[index]) {
+                if (added[region]++ == 0) touched[nTouched++] = region;
+            }
+        }
+        int nCompleted = 0;
+        for (int i = 0; i < nTouched; i++) {
+            int region = touched[i];
+            if (fill[region] + added[region] == geometry.regionCells[region].length) completed[nCompleted++] = region;
+            added[region] = 0;
+        }
+        // keep the regions in the order of the regions list, like the other models
+        Arrays.sort(completed, 0, nCompleted);
+        return nCompleted;
+    }
+
+    @Override
+    public List<Shape> getPoppableRegions(Piece piece) {
+        List<Shape> poppableRegions = new ArrayList<>();
+        if (!canPlace(piece)) return poppableRegions;
+        Scratch scratch = scratch();
+        int n = completedBy(scratch, piece);
+        for (int i = 0; i < n; i++) poppableRegions.add(geometry.regions.get(scratch.completed[i]));
+        return poppableRegions;
+    }
+
+    @Override
+    public BitSet getPoppableCells(Piece piece) {
+        BitSet cells = new BitSet(geometry.cells());
+        if (!canPlace(piece)) return cells;
+        Scratch scratch = scratch();
+        int n = completedBy(scratch, piece);
+        for (int i = 0; i < n; i++) {
+            for (int index : geometry.regionCells[scratch.completed[i]]) cells.set(index);
+        }
+        return cells;
+    }
+
+    private void setCell(int index) {
+        if (isOccupied(index)) return;
+        words[index >>> 6] |= 1L << index;
+        for (int region : geometry.regionsByCell[index]) fill[region]++;
+        zobristKey ^= geometry.cellKeys[index];
+    }
+
+    private void clearCell(int index) {
+        if (!isOccupied(index)) return;
+        words[index >>> 6] &= ~(1L << index);
+        for (int region : geometry.regionsByCell[index]) fill[region]--;
+        zobristKey ^= geometry.cellKeys[index];
+    }
+
+    @Override
+    public void place(Piece piece) {
+        if (history != null) history.changing(words, UndoHistory.pack(score, streak));
+        Scratch scratch = scratch();
+        int nPopped = canPlace(piece) ? completedBy(scratch, piece) : 0;
+        Cell loc = piece.loc();
+        for (int offset : piece.shape().offsets()) {
+            int x = loc.x() + Shape.offsetX(offset);
+            int y = loc.y() + Shape.offsetY(offset);
+            if (geometry.inBounds(x, y)) setCell(geometry.index(x, y));
+        }
+        for (int i = 0; i < nPopped; i++) {
+            for (int index : geometry.regionCells[scratch.completed[i]]) clearCell(index);
+        }
+        score += nPopped * nPopped * 10;
+        streak = nPopped == 0 ? 0 : streak + 1;
+    }
+
+    @Override
+    public void keepHistory(int limit) {
+        history = limit > 0 ? new UndoHistory(limit, words.length) : null;
+    }
+
+    @Override
+    public boolean undo() {
+        if (history == null || !history.canUndo()) return false;
+        long[] board = words.clone();
+        setState(board, history.undo(board, UndoHistory.pack(score, streak)));
+        return true;
+    }
+
+    @Override
+    public boolean redo() {
+        if (history == null || !history.canRedo()) return false;
+        long[] board = words.clone();
+        setState(board, history.redo(board, UndoHistory.pack(score, streak)));
+        return true;
+    }
+
+    // only the cells that differ are changed, so the fill counts and key stay in step
+    private void setState(long[] board, long packed) {
+        for (int w = 0; w < words.length; w++) {
+            for (long bits = words[w] ^ board[w]; bits != 0; bits &= bits - 1) {
+                int index = (w << 6) + Long.numberOfTrailingZeros(bits);
+                if ((board[w] & (1L << index)) != 0) setCell(index);
+                else clearCell(index);
+            }
+        }
+        score = UndoHistory.score(packed);
+        streak = UndoHistory.streak(packed);
+    }
+
+    @Override
+    public void remove(Shape region) {
+        for (Cell cell : region) {
+            if (geometry.inBounds(cell.x(), cell.y())) clearCell(geometry.index(cell.x(), cell.y()));
+        }
+    }
+
+    @Override
+    public boolean isComplete(Shape region) {
+        for (Cell cell : region) {
+            if (!geometry.inBounds(cell.x(), cell.y()) || !isOccupied(geometry.index(cell.x(), cell.y()))) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public boolean isGameOver(List<Shape> palettePieces) {
+        for (Shape shape : palettePieces) {
+            if (canPlaceAnywhere(shape)) return false;
+        }
+        return true;
+    }
+
+    // only the window of anchors that keep the shape on the board is looked at
+    public boolean canPlaceAnywhere(Shape shape) {
+        int[] offsets = shape.offsets();
+        for (int x = shape.firstAnchorX(); x <= shape.lastAnchorX(geometry.width); x++) {
+            for (int y = shape.firstAnchorY(); y <= shape.lastAnchorY(geometry.height); y++) {
+                if (isFree(offsets, x, y)) return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public BitSet getLegalAnchors(Shape shape) {
+        BitSet anchors = new BitSet(geometry.cells());
+        int[] offsets = shape.offsets();
+        for (int x = shape.firstAnchorX(); x <= shape.lastAnchorX(geometry.width); x++) {
+            for (int y = shape.firstAnchorY(); y <= shape.lastAnchorY(geometry.height); y++) {
+                if (isFree(offsets, x, y)) anchors.set(geometry.index(x, y));
+            }
+        }
+        return anchors;
+    }
+
+    @Override
+    public int[] getAnchorPopCounts(Shape shape) {
+        int[] counts = new int[geometry.cells()];
+        Arrays.fill(counts, -1);
+        int[] offsets = shape.offsets();
+        Scratch scratch = scratch();
+        for (int x = shape.firstAnchorX(); x <= shape.lastAnchorX(geometry.width); x++) {
+            for (int y = shape.firstAnchorY(); y <= shape.lastAnchorY(geometry.height); y++) {
+                if (isFree(offsets, x, y)) counts[geometry.index(x, y)] = completedBy(scratch, offsets, x, y);
+            }
+        }
+        return counts;
+    }
+
+    @Override
+    public Set<Cell> getOccupiedCells() {
+        Set<Cell> occupiedCells = new HashSet<>();
+        for (int w = 0; w < words.length; w++) {
+            for (long bits = words[w]; bits != 0; bits &= bits - 1) {
+                occupiedCells.add(geometry.cell((w << 6) + Long.numberOfTrailingZeros(bits)));
+            }
+        }
+        return occupiedCells;
+    }
+
+    @Override
+    public int getScore() {
+        return score;
+    }
+
+    @Override
+    public int getStreak() {
+        return streak;
+    }
+
+    @Override
+    public long getZobristKey() {
+        return zobristKey;
+    }
+
+    @Override
+    public String toString() {
+        return "ModelWords " + geometry + " score " + score + " streak " + streak;
+    }
+}
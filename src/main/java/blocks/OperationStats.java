@@ -0,0 +1,93 @@
+package blocks;
+
+import java.beans.ConstructorProperties;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+public class OperationStats {
+    // call count, total time, a latency histogram with power-of-two nanosecond buckets, and
+    // bytes allocated, for one operation; safe to update from many threads at once
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAdder allocatedBytes = new LongAdder();
+    // bucket i counts calls that took less than 2^i nanoseconds (and at least 2^(i-1))
+    private final AtomicLongArray buckets = new AtomicLongArray(64);
+
+    public void record(long nanos, long bytes) {
+        calls.increment();
+        totalNanos.add(nanos);
+        if (bytes > 0) allocatedBytes.add(bytes);
+        buckets.incrementAndGet(64 - Long.numberOfLeadingZeros(Math.max(0, nanos)));
+    }
+
+    // the upper bound of the bucket holding the given percentile
+    long percentileNanos(double p) {
+        long total = 0;
+        for (int i = 0; i < 64; i++) total += buckets.get(i);
+        if (total == 0) return 0;
+        long rank = (long) Math.ceil(p / 100 * total);
+        long seen = 0;
+        for (int i = 0; i < 64; i++) {
+            seen += buckets.get(i);
+            if (seen >= rank) return i == 0 ? 0 : 1L << i;
+        }
+        return Long.MAX_VALUE;
+    }
+
+    public void reset() {
+        calls.reset();
+        totalNanos.reset();
+        allocatedBytes.reset();
+        for (int i = 0; i < 64; i++) buckets.set(i, 0);
+    }
+
+    public Snapshot snapshot() {
+        long n = calls.sum();
+        return new Snapshot(n, n == 0 ? 0 : (double) totalNanos.sum() / n, percentileNanos(50), percentileNanos(99),
+                n == 0 ? 0 : (double) allocatedBytes.sum() / n);
+    }
+
+    // the stats at one moment, as JMX shows them
+    public static class Snapshot {
+        private final long calls;
+        private final double meanNanos;
+        private final long p50Nanos;
+        private final long p99Nanos;
+        private final double bytesPerCall;
+
+        @ConstructorProperties({"calls", "meanNanos", "p50Nanos", "p99Nanos", "bytesPerCall"})
+        public Snapshot(long calls, double meanNanos, long p50Nanos, long p99Nanos, double bytesPerCall) {
+            this.calls = calls;
+            this.meanNanos = meanNanos;
+            this.p50Nanos = p50Nanos;
+            this.p99Nanos = p99Nanos;
+            this.bytesPerCall = bytesPerCall;
+        }
+
+        public long getCalls() {
+            return calls;
+        }
+
+        public double getMeanNanos() {
+            return meanNanos;
+        }
+
+        public long getP50Nanos() {
+            return p50Nanos;
+        }
+
+        public long getP99Nanos() {
+            return p99Nanos;
+        }
+
+        public double getBytesPerCall() {
+            return bytesPerCall;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("calls: %d  mean: %.0fns  p50: <%dns  p99: <%dns  bytes/call: %.0f",
+                    calls, meanNanos, p50Nanos, p99Nanos, bytesPerCall);
+        }
+    }
+}
@@ -3,6 +3,7 @@ package blocks;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import blocks.BlockShapes.Shape;
@@ -12,17 +13,26 @@ import blocks.BlockShapes.Sprite;
 import blocks.BlockShapes.PixelLoc;
 
 public class Palette {
-    ArrayList<Shape> shapes = new ArrayList<>();
+    // the shared ShapeSet, a palette only keeps the sprites drawn from it
+    final List<Shape> shapes = ShapeSet.shared();
     List<Sprite> sprites;
     int nShapes = 3;
+    Random random;
+    // told about every new set of shapes drawn, e.g. to record the game
+    Consumer<List<Shape>> replenishListener = null;
 
     public Palette() {
-        shapes.addAll(new ShapeSet().getShapes());
+        this(new Random());
+    }
+
+    // a seeded random makes the sequence of palettes reproducible, e.g. for headless self-play
+    public Palette(Random random) {
+        this.random = random;
         sprites = new ArrayList<>();
         replenish();
     }
 
-    public ArrayList<Shape> getShapes() {
+    public List<Shape> getShapes() {
         return shapes;
     }
 
@@ -37,19 +47,38 @@ public class Palette {
 
 
     public Sprite getSprite(PixelLoc mousePoint, int cellSize) {
-        // if we have a sprite that contains the point (px, py), return it
+        // if we have a sprite whose bounding box contains the point (px, py), return it
         // and the size of the cells - the sprite location is already in pixel coordinates
+        // the box means a gap in a shape, such as a corner of an L, still picks it up
         for (Sprite sprite : sprites) {
-            if (sprite.contains(mousePoint, cellSize)
-                    || sprite.shape.get(0).x() < sprite.shape.get(0).y()
-                        && sprite.contains(new PixelLoc(mousePoint.x(), mousePoint.y() + sprite.shape.get(0).y()*cellSize), cellSize)) {
-                    // accounting for shapes that don't start in the top left
+            if (sprite.boundsContain(mousePoint, cellSize)) {
                 return sprite;
             }
         }
         return null;
     }
 
+    // copies of the sprites' shapes and states, a sprite being dragged counts as still in the palette
+    public List<Sprite> snapshot() {
+        List<Sprite> saved = new ArrayList<>();
+        for (Sprite sprite : sprites) {
+            Sprite copy = new Sprite(sprite.shape, 0, 0);
+            copy.state = sprite.state == SpriteState.PLACED ? SpriteState.PLACED : SpriteState.IN_PALETTE;
+            saved.add(copy);
+        }
+        return saved;
+    }
+
+    // puts back sprites from a snapshot, the caller lays them out again
+    public void restore(List<Sprite> saved) {
+        sprites.clear();
+        for (Sprite sprite : saved) {
+            Sprite copy = new Sprite(sprite.shape, 0, 0);
+            copy.state = sprite.state;
+            sprites.add(copy);
+        }
+    }
+
     private int nReadyPieces() {
         int count = 0;
         for (Sprite sprite : sprites) {
@@ -86,8 +115,9 @@ public class Palette {
 
         for (int i = 0; i < nShapes; i++) {
             // Randomly determine sprites
-            sprites.add(new Sprite(shapes.get(new Random().nextInt(shapes.size())), 0, 0));
+            sprites.add(new Sprite(shapes.get(random.nextInt(shapes.size())), 0, 0));
         }
+        if (replenishListener != null) replenishListener.accept(getShapesToPlace());
     }
 
     public static void main(String[] args) {
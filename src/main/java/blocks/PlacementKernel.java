@@ -0,0 +1,120 @@
+package blocks;
+
+import blocks.BlockShapes.Cell;
+import blocks.BlockShapes.Shape;
+import blocks.PlacementTable.Placement;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Evaluates every placement of a shape against a bitboard at once: for each one, whether it fits
+ * and how many regions it would pop.
+ * <p>
+ * StrategyLookahead generates its moves with best(). The placements are laid out as parallel arrays
+ * so a kernel can stream through them. The scalar
+ * kernel only looks at the regions each placement touches; the vector kernel (PlacementKernelVector)
+ * tests a vector of placements at a time against the region masks they touch with jdk.incubator.vector,
+ * is only built by the vector Maven profile (from src/vector/java), and can only be used when the JVM was
+ * started with --add-modules jdk.incubator.vector.
+ */
+public abstract class PlacementKernel {
+    static final String vectorModule = "jdk.incubator.vector";
+
+    // the placements of one shape, index for index with PlacementTable.placements(shape)
+    public record Batch(Cell[] anchors, long[] lo, long[] hi, long[] regions) {
+        public int size() {
+            return anchors.length;
+        }
+    }
+
+    private static final Map<Shape, Batch> batches = new ConcurrentHashMap<>();
+
+    public static Batch batch(Shape shape) {
+        Batch batch = batches.get(shape);
+        return batch != null ? batch : batches.computeIfAbsent(new Shape(shape), PlacementKernel::compile);
+    }
+
+    private static Batch compile(Shape shape) {
+        Placement[] placements = PlacementTable.getShared().placements(shape);
+        Batch batch = new Batch(new Cell[placements.length], new long[placements.length], new long[placements.length], new long[placements.length]);
+        for (int i = 0; i < placements.length; i++) {
+            batch.anchors[i] = placements[i].anchor();
+            batch.lo[i] = placements[i].lo();
+            batch.hi[i] = placements[i].hi();
+            batch.regions[i] = placements[i].regions();
+        }
+        return batch;
+    }
+
+    // fills popCounts[i] with -1 if placement i overlaps the board, otherwise the number of regions it would pop
+    public abstract void evaluate(long lo, long hi, Batch batch, int[] popCounts);
+
+    public abstract String name();
+
+    // the scalar evaluation of placements from (inclusive) to to (exclusive)
+    static void evaluate(long lo, long hi, Batch batch, int[] popCounts, int from, int to) {
+        long[] pieceLo = batch.lo;
+        long[] pieceHi = batch.hi;
+        for (int i = from; i < to; i++) {
+            if ((pieceLo[i] & lo) != 0 || (pieceHi[i] & hi) != 0) {
+                popCounts[i] = -1;
+                continue;
+            }
+            long newLo = lo | pieceLo[i];
+            long newHi = hi | pieceHi[i];
+            int pops = 0;
+            // only the regions this placement touches can be completed by it
+            for (long bits = batch.regions[i]; bits != 0; bits &= bits - 1) {
+                int region = Long.numberOfTrailingZeros(bits);
+                if ((newLo & ModelBitboard.regionLo[region]) == ModelBitboard.regionLo[region]
+                        && (newHi & ModelBitboard.regionHi[region]) == ModelBitboard.regionHi[region]) pops++;
+            }
+            popCounts[i] = pops;
+        }
+    }
+
+    public static PlacementKernel scalar() {
+        return Scalar.instance;
+    }
+
+    // the vector kernel, or null when the incubator module isn't in the boot layer or the kernel wasn't built
+    public static PlacementKernel vector() {
+        if (ModuleLayer.boot().findModule(vectorModule).isEmpty()) return null;
+        try {
+            return (PlacementKernel) Class.forName("blocks.PlacementKernelVector").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+
+    // the scalar kernel, or the vector one when asked for with -Dblocks.vector=true and available; the scalar kernel
+    // measured as fast or faster in PlacementKernelBenchmark, so the vector one has to be chosen for a machine
+    // chosen once, on first use; ModelBitboard.getAnchorPopCounts evaluates through it
+    public static PlacementKernel best() {
+        return Best.kernel;
+    }
+
+    private static final class Best {
+        static final PlacementKernel kernel = choose();
+
+        private static PlacementKernel choose() {
+            PlacementKernel vector = Boolean.getBoolean("blocks.vector") ? vector() : null;
+            return vector != null ? vector : scalar();
+        }
+    }
+
+    static final class Scalar extends PlacementKernel {
+        static final Scalar instance = new Scalar();
+
+        @Override
+        public void evaluate(long lo, long hi, Batch batch, int[] popCounts) {
+            evaluate(lo, hi, batch, popCounts, 0, batch.size());
+        }
+
+        @Override
+        public String name() {
+            return "scalar";
+        }
+    }
+}
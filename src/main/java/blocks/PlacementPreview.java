@@ -0,0 +1,66 @@
+package blocks;
+
+import blocks.BlockShapes.Cell;
+import blocks.BlockShapes.Piece;
+import blocks.BlockShapes.Shape;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+public class PlacementPreview {
+    // what dropping a piece would do, worked out once per shape, anchor and board and shared by
+    // the controller and the view; most drag events don't move the snapped anchor, so they
+    // just get the last preview back
+
+    // legal: whether the piece can be placed, the other fields are empty if not
+    // ghostCells: the grid cells the piece would cover
+    // poppedCells: the cells that would be cleared, indexed by y * width + x of the model's geometry
+    public record Preview(Piece piece, boolean legal, List<Cell> ghostCells, BitSet poppedCells, BoardGeometry geometry) {
+        public boolean pops(int x, int y) {
+            return poppedCells.get(geometry.index(x, y));
+        }
+    }
+
+    final ModelInterface model;
+    private Preview last = null;
+    // the board the last preview was made for, the Zobrist key changes with every placement and pop
+    private long lastBoardKey;
+    private long hits = 0;
+    private long misses = 0;
+
+    public PlacementPreview(ModelInterface model) {
+        this.model = model;
+    }
+
+    public Preview get(Piece piece) {
+        long boardKey = model.getZobristKey();
+        if (last != null && boardKey == lastBoardKey && last.piece().loc().equals(piece.loc())
+                && (last.piece().shape() == piece.shape() || last.piece().shape().equals(piece.shape()))) {
+            hits++;
+            return last;
+        }
+        misses++;
+        last = compute(piece);
+        lastBoardKey = boardKey;
+        return last;
+    }
+
+    private Preview compute(Piece piece) {
+        if (!model.canPlace(piece)) return new Preview(piece, false, List.of(), new BitSet(), model.getGeometry());
+        List<Cell> ghostCells = new ArrayList<>();
+        Cell loc = piece.loc();
+        for (int offset : piece.shape().offsets()) {
+            ghostCells.add(Cell.of(loc.x() + Shape.offsetX(offset), loc.y() + Shape.offsetY(offset)));
+        }
+        return new Preview(piece, true, ghostCells, model.getPoppableCells(piece), model.getGeometry());
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+}
@@ -0,0 +1,79 @@
+package blocks;
+
+import blocks.BlockShapes.Cell;
+import blocks.BlockShapes.Shape;
+import blocks.BlockShapes.ShapeSet;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class PlacementTable {
+    // a shape compiled at one anchor: the distinct grid cells it covers plus the same cells as a bitboard mask,
+    // and the regions it touches as a bitmask over RegionHelper.allRegions() order
+    public record Placement(Cell anchor, Cell[] cells, long lo, long hi, long regions) {
+    }
+
+    // built once at startup for the whole ShapeSet, any other shape is compiled on first use
+    static final PlacementTable shared = new PlacementTable(ShapeSet.shared());
+    // the placements of each ShapeSet shape, in ShapeSet order
+    private static final Placement[][] catalogue = ShapeSet.shared().stream().map(shared::placements).toArray(Placement[][]::new);
+
+    // Shape is a list so it is keyed by its contents, equal shapes from different palettes share an entry
+    private final Map<Shape, Placement[]> placements = new ConcurrentHashMap<>();
+
+    public PlacementTable(List<Shape> shapes) {
+        for (Shape shape : shapes) {
+            placements.put(shape, compile(shape));
+        }
+    }
+
+    public static PlacementTable getShared() {
+        return shared;
+    }
+
+    // shared by every search, so must not be written to
+    static Placement[][] catalogue() {
+        return catalogue;
+    }
+
+    // every in-bounds placement of the shape, in x-major anchor order
+    public Placement[] placements(Shape shape) {
+        Placement[] compiled = placements.get(shape);
+        return compiled != null ? compiled : placements.computeIfAbsent(new Shape(shape), PlacementTable::compile);
+    }
+
+    // only the anchors in the shape's window keep it on the grid
+    static Placement[] compile(Shape shape) {
+        List<Placement> compiled = new ArrayList<>();
+        for (int x = shape.firstAnchorX(); x <= shape.lastAnchorX(ModelInterface.width); x++) {
+            for (int y = shape.firstAnchorY(); y <= shape.lastAnchorY(ModelInterface.height); y++) {
+                compiled.add(compileAt(shape, Cell.of(x, y)));
+            }
+        }
+        return compiled.toArray(new Placement[0]);
+    }
+
+    // the anchor must keep every cell of the shape on the grid
+    private static Placement compileAt(Shape shape, Cell anchor) {
+        int[] offsets = shape.offsets();
+        Cell[] cells = new Cell[offsets.length];
+        long lo = 0L;
+        long hi = 0L;
+        for (int i = 0; i < offsets.length; i++) {
+            Cell cell = Cell.of(anchor.x() + Shape.offsetX(offsets[i]), anchor.y() + Shape.offsetY(offsets[i]));
+            cells[i] = cell;
+            int bit = ModelBitboard.bitIndex(cell);
+            if (bit < 64) lo |= 1L << bit;
+            else hi |= 1L << (bit - 64);
+        }
+        long regions = 0L;
+        for (int region = 0; region < ModelBitboard.regionLo.length; region++) {
+            if ((lo & ModelBitboard.regionLo[region]) != 0 || (hi & ModelBitboard.regionHi[region]) != 0) {
+                regions |= 1L << region;
+            }
+        }
+        return new Placement(anchor, cells, lo, hi, regions);
+    }
+}
@@ -0,0 +1,83 @@
+package blocks;
+
+import blocks.BlockShapes.Cell;
+import blocks.BlockShapes.Piece;
+import blocks.BlockShapes.Shape;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+public class RegionCounts {
+    // keeps a count of the occupied cells in every region, so that finding the regions a piece
+    // would complete only has to look at the (at most three) regions each piece cell belongs to
+    // the regions and the cell-to-regions index are the standard geometry's, shared by every model
+    static final List<Shape> regions = BoardGeometry.standard.regions();
+    // for each cell, indexed by y * width + x, the indices of the regions containing it
+    static final int[][] regionsByCell = BoardGeometry.standard.regionsByCell;
+    final int[] fill = new int[regions.size()];
+
+    static int cellIndex(Cell cell) {
+        return cell.y() * ModelInterface.width + cell.x();
+    }
+
+    // call once for every cell that goes from empty to occupied, off-grid cells are ignored
+    void cellAdded(Cell cell) {
+        if (!ModelBitboard.inBounds(cell)) return;
+        for (int region : regionsByCell[cellIndex(cell)]) fill[region]++;
+    }
+
+    // call once for every cell that goes from occupied to empty
+    void cellRemoved(Cell cell) {
+        if (!ModelBitboard.inBounds(cell)) return;
+        for (int region : regionsByCell[cellIndex(cell)]) fill[region]--;
+    }
+
+    static int cellIndex(Cell loc, int offset) {
+        return (loc.y() + Shape.offsetY(offset)) * ModelInterface.width + loc.x() + Shape.offsetX(offset);
+    }
+
+    // the regions, as a bitmask over the regions list, that are touched by the piece's cells
+    // the piece must be in bounds
+    static long touchedBy(Piece piece) {
+        long touched = 0L;
+        for (int offset : piece.shape().offsets()) {
+            for (int region : regionsByCell[cellIndex(piece.loc(), offset)]) touched |= 1L << region;
+        }
+        return touched;
+    }
+
+    // the regions, as a bitmask over the regions list, that would be completed by placing
+    // the piece; the piece's cells must be in bounds and currently empty
+    // only reads the counts, so queries on one model can run on several threads
+    long completedBy(Piece piece) {
+        long pieceLo = ModelBitboard.pieceLo(piece);
+        long pieceHi = ModelBitboard.pieceHi(piece);
+        long completed = 0L;
+        for (long bits = touchedBy(piece); bits != 0; bits &= bits - 1) {
+            int region = Long.numberOfTrailingZeros(bits);
+            // the piece's cells in the region, from the bitboard masks
+            int added = Long.bitCount(pieceLo & ModelBitboard.regionLo[region]) + Long.bitCount(pieceHi & ModelBitboard.regionHi[region]);
+            if (fill[region] + added == regions.get(region).size()) completed |= 1L << region;
+        }
+        return completed;
+    }
+
+    // the cells of the regions in the mask, indexed by y * width + x
+    BitSet cellsIn(long mask) {
+        BitSet cells = new BitSet(ModelInterface.width * ModelInterface.height);
+        for (long bits = mask; bits != 0; bits &= bits - 1) {
+            for (Cell cell : regions.get(Long.numberOfTrailingZeros(bits))) cells.set(cellIndex(cell));
+        }
+        return cells;
+    }
+
+    // the regions in the mask, in the order of the regions list
+    List<Shape> regionsIn(long mask) {
+        List<Shape> selected = new ArrayList<>(Long.bitCount(mask));
+        for (long bits = mask; bits != 0; bits &= bits - 1) {
+            selected.add(regions.get(Long.numberOfTrailingZeros(bits)));
+        }
+        return selected;
+    }
+}
@@ -4,19 +4,35 @@ import blocks.BlockShapes.Shape;
 import blocks.BlockShapes.Cell;
 
 import java.util.ArrayList;
+import java.util.List;
 
 public class RegionHelper {
-    int width = ModelInterface.width;
-    int height = ModelInterface.height;
-    int subSize = ModelInterface.subSize;
-    int nRows = height;
-    int nCols = width;
-    int nSubRows = height / subSize;
+    int width;
+    int height;
+    int subSize;
+    int nRows;
+    int nCols;
+    int nSubRows;
+    int nSubCols;
+
+    public RegionHelper() {
+        this(ModelInterface.width, ModelInterface.height, ModelInterface.subSize);
+    }
+
+    public RegionHelper(int width, int height, int subSize) {
+        this.width = width;
+        this.height = height;
+        this.subSize = subSize;
+        this.nRows = height;
+        this.nCols = width;
+        this.nSubRows = height / subSize;
+        this.nSubCols = width / subSize;
+    }
 
     Shape rowShape(int row) {
         Shape shape = new Shape();
         for (int x = 0; x < width; x++) {
-            shape.add(new Cell(x, row));
+            shape.add(Cell.of(x, row));
         }
         return shape;
     }
@@ -24,7 +40,7 @@ public class RegionHelper {
     Shape colShape(int col) {
         Shape shape = new Shape();
         for (int y = 0; y < height; y++) {
-            shape.add(new Cell(col, y));
+            shape.add(Cell.of(col, y));
         }
         return shape;
     }
@@ -33,7 +49,7 @@ public class RegionHelper {
         Shape shape = new Shape();
         for (int dx = 0; dx < subSize; dx++) {
             for (int dy = 0; dy < subSize; dy++) {
-                shape.add(new Cell(x * subSize + dx, y * subSize + dy));
+                shape.add(Cell.of(x * subSize + dx, y * subSize + dy));
             }
         }
         return shape;
@@ -57,7 +73,7 @@ public class RegionHelper {
 
     ArrayList<Shape> subSquareRegions() {
         ArrayList<Shape> regions = new ArrayList<>();
-        for (int x = 0; x < nSubRows; x++) {
+        for (int x = 0; x < nSubCols; x++) {
             for (int y = 0; y < nSubRows; y++) {
                 regions.add(subSquareShape(x, y));
             }
@@ -73,6 +89,24 @@ public class RegionHelper {
         return regions;
     }
 
+    // for each grid cell, indexed by y * width + x, the indices of the regions that contain it
+    int[][] regionsByCell(List<Shape> regions) {
+        List<List<Integer>> byCell = new ArrayList<>();
+        for (int i = 0; i < width * height; i++) {
+            byCell.add(new ArrayList<>());
+        }
+        for (int region = 0; region < regions.size(); region++) {
+            for (Cell cell : regions.get(region)) {
+                byCell.get(cell.y() * width + cell.x()).add(region);
+            }
+        }
+        int[][] index = new int[width * height][];
+        for (int i = 0; i < index.length; i++) {
+            index[i] = byCell.get(i).stream().mapToInt(Integer::intValue).toArray();
+        }
+        return index;
+    }
+
     public static void main(String[] args) {
         RegionHelper rh = new RegionHelper();
         for (Shape shape : rh.allRegions()) {
@@ -0,0 +1,210 @@
+package blocks;
+
+import blocks.BlockShapes.Cell;
+import blocks.BlockShapes.Piece;
+import blocks.BlockShapes.Sprite;
+import blocks.BlockShapes.SpriteState;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+/**
+ * Headless self-play for the bots.
+ * Plays complete games with any ModelStrategy against a seeded Palette, with no
+ * Swing timers or repaints, and fans the games out across a fork/join pool.
+ * <p>
+ * Every game gets its own Random derived from the run seed and the game number,
+ * so the results of a run do not depend on how the games are scheduled.
+ */
+public class SelfPlay {
+
+    // a strategy is tied to the model it reads, so the runner needs to build both per game
+    public interface StrategyFactory {
+        ModelStrategy create(ModelInterface model, Palette palette, Random random);
+    }
+
+    public record GameResult(long seed, int score, int moves, int maxStreak) {
+    }
+
+    public record Report(List<GameResult> games, long elapsedNanos) {
+        public long totalMoves() {
+            return games.stream().mapToLong(GameResult::moves).sum();
+        }
+
+        public double gamesPerSecond() {
+            return games.size() / (elapsedNanos / 1e9);
+        }
+
+        public double movesPerSecond() {
+            return totalMoves() / (elapsedNanos / 1e9);
+        }
+
+        public String toString() {
+            int[] scores = games.stream().mapToInt(GameResult::score).sorted().toArray();
+            int[] streaks = games.stream().mapToInt(GameResult::maxStreak).sorted().toArray();
+            return String.format("games: %d in %.2fs%n", games.size(), elapsedNanos / 1e9)
+                    + String.format("games/sec: %.1f  moves/sec: %.1f%n", gamesPerSecond(), movesPerSecond())
+                    + "score " + distribution(scores) + "\n"
+                    + "max streak " + distribution(streaks);
+        }
+    }
+
+    final Supplier<ModelInterface> modelFactory;
+    final StrategyFactory strategyFactory;
+    // when set, every game's model and strategy are wrapped to record into it
+    GameMetrics metrics = null;
+
+    public SelfPlay(Supplier<ModelInterface> modelFactory, StrategyFactory strategyFactory) {
+        this.modelFactory = modelFactory;
+        this.strategyFactory = strategyFactory;
+    }
+
+    // a distinct, well mixed seed for each game of a run
+    static long gameSeed(long runSeed, int game) {
+        long z = runSeed + (game + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    public GameResult playGame(long seed) {
+        return playGame(seed, null);
+    }
+
+    // plays the game and, when given somewhere to put it, records it with a GameRecorder
+    public GameResult playGame(long seed, Consumer<byte[]> recordSink) {
+        Random random = new Random(seed);
+        ModelInterface model = modelFactory.get();
+        Palette palette = new Palette(random);
+        GameRecorder recorder = recordSink == null ? null : new GameRecorder(seed, model.getGeometry());
+        if (recorder != null) {
+            recorder.palette(palette.getShapesToPlace());
+            palette.replenishListener = recorder::palette;
+        }
+        ModelStrategy strategy = strategyFactory.create(model, palette, random);
+        // wrapped after the strategy is made, as strategies expect their own model class
+        if (metrics != null) {
+            model = new InstrumentedModel(model, metrics);
+            strategy = new InstrumentedStrategy(strategy, metrics);
+        }
+        int moves = 0;
+        int maxStreak = 0;
+        while (!model.isGameOver(palette.getShapesToPlace())) {
+            // same policy as the GUI bot: the first palette sprite with a legal starting point is played
+            int movesBefore = moves;
+            for (Sprite sprite : palette.getSprites()) {
+                if (sprite.state != SpriteState.IN_PALETTE) continue;
+                Cell startingPoint = strategy.getValidStartingPoint(sprite.shape);
+                if (startingPoint == null) continue;
+                Piece piece = new Piece(sprite.shape, startingPoint);
+                model.place(piece);
+                if (recorder != null) recorder.move(piece, model);
+                sprite.state = SpriteState.PLACED;
+                moves++;
+                maxStreak = Math.max(maxStreak, strategy.getStreak());
+                break;
+            }
+            // a strategy that gives up on every placeable shape ends the game too
+            if (moves == movesBefore) break;
+            palette.replenish();
+        }
+        if (recorder != null) recordSink.accept(recorder.end(model));
+        return new GameResult(seed, model.getScore(), moves, maxStreak);
+    }
+
+    public Report playGames(int nGames, long runSeed, int parallelism) throws InterruptedException, ExecutionException {
+        return playGames(nGames, runSeed, parallelism, null);
+    }
+
+    // as above, appending every game to the archive when one is given
+    public Report playGames(int nGames, long runSeed, int parallelism, GameArchive archive) throws InterruptedException, ExecutionException {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            long start = System.nanoTime();
+            List<GameResult> games = pool.submit(() -> IntStream.range(0, nGames)
+                    .parallel()
+                    .mapToObj(game -> playGame(gameSeed(runSeed, game), archive == null ? null : record -> {
+                        try {
+                            archive.append(game, record);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }))
+                    .toList()).get();
+            return new Report(games, System.nanoTime() - start);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    static String distribution(int[] sorted) {
+        if (sorted.length == 0) return "(no games)";
+        return String.format("min: %d  p50: %d  p90: %d  p99: %d  max: %d  mean: %.1f",
+                sorted[0], percentile(sorted, 50), percentile(sorted, 90), percentile(sorted, 99),
+                sorted[sorted.length - 1], Arrays.stream(sorted).average().orElse(0));
+    }
+
+    static int percentile(int[] sorted, int p) {
+        int index = (int) Math.ceil(p / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+
+    // one lookahead table per worker thread rather than 2MB per game, cleared for each game so that a
+    // game's plans don't depend on the games the thread played before it
+    private static final ThreadLocal<TranspositionTable> lookaheadTables = ThreadLocal.withInitial(() -> new TranspositionTable(17));
+
+    static TranspositionTable lookaheadTable() {
+        TranspositionTable table = lookaheadTables.get();
+        table.clear();
+        return table;
+    }
+
+    static SelfPlay forModel(String model) {
+        // words12, words16, words25 and so on play the long[] model on a bigger board
+        if (model.startsWith("words")) {
+            BoardGeometry geometry = model.equals("words") ? BoardGeometry.standard : BoardGeometry.of(Integer.parseInt(model.substring(5)));
+            return new SelfPlay(() -> new ModelWords(geometry), (m, p, r) -> new StrategyWords((ModelWords) m, r));
+        }
+        return switch (model) {
+            case "set" -> new SelfPlay(ModelSet::new, (m, p, r) -> new StrategySet((ModelSet) m, r));
+            case "2dArray" -> new SelfPlay(Model2dArray::new, (m, p, r) -> new Strategy2dArray((Model2dArray) m, r));
+            case "bitboard" -> new SelfPlay(ModelBitboard::new, (m, p, r) -> new StrategyBitboard((ModelBitboard) m, r));
+            // a node budget rather than the window's 50ms, so a seeded run plays the same games on any machine
+            case "lookahead" -> new SelfPlay(ModelBitboard::new, (m, p, r) -> StrategyLookahead.withNodeBudget((StandardModel) m, p::getShapesToPlace,
+                    20_000, lookaheadTable()));
+            // one search thread per game, the games themselves already run in parallel
+            case "mcts" -> new SelfPlay(ModelBitboard::new, (m, p, r) -> new StrategyMcts((StandardModel) m, p::getShapesToPlace,
+                    StrategyMcts.Budget.playouts(2000), 1, r.nextLong()));
+            default -> throw new IllegalArgumentException("Unknown model: " + model);
+        };
+    }
+
+    // usage: java blocks.SelfPlay [games] [set|2dArray|bitboard|lookahead|mcts|words|words<size>] [seed] [threads] [record dir]
+    public static void main(String[] args) throws Exception {
+        int nGames = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        String model = args.length > 1 ? args[1] : "bitboard";
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 42L;
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+        System.out.println("model: " + model + "  seed: " + seed + "  threads: " + threads);
+        SelfPlay selfPlay = forModel(model);
+        if (GameMetrics.enabled()) selfPlay.metrics = GameMetrics.shared();
+        if (args.length > 4) {
+            // one file per thread, so the archive can be replayed just as much in parallel
+            try (GameArchive archive = new GameArchive(Path.of(args[4]), model + "-" + seed, threads)) {
+                System.out.println(selfPlay.playGames(nGames, seed, threads, archive));
+            }
+        } else {
+            System.out.println(selfPlay.playGames(nGames, seed, threads));
+        }
+        if (selfPlay.metrics != null) System.out.println(selfPlay.metrics);
+    }
+}
@@ -0,0 +1,13 @@
+package blocks;
+
+// a model of the classic 9x9 board that can hand out and take back its whole state as a BoardState;
+// ModelWords plays any size and undoes through its own words, so it isn't one, and a search that branches
+// from BoardStates asks for this type rather than finding out at runtime that the board is too big
+public interface StandardModel extends ModelInterface {
+
+    // an immutable copy of the board, score and streak
+    BoardState snapshot();
+
+    // sets the board, score and streak to the state's, as a move that can itself be undone
+    void restore(BoardState state);
+}
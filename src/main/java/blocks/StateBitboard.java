@@ -0,0 +1,10 @@
+package blocks;
+
+public class StateBitboard {
+    // the 81 grid cells packed into two longs, bit index is y * width + x
+    // lo holds cells 0..63 and hi holds cells 64..80
+    long lo = 0L;
+    long hi = 0L;
+    int score = 0;
+    int streak = 0;
+}
@@ -0,0 +1,38 @@
+package blocks;
+
+import blocks.BlockShapes.Piece;
+import blocks.BlockShapes.Shape;
+import blocks.BlockShapes.Cell;
+
+import java.util.Random;
+
+public class StrategyBitboard implements ModelStrategy {
+    ModelBitboard model;
+
+    Random random;
+
+    public StrategyBitboard(ModelBitboard model) {
+        this(model, new Random());
+    }
+
+    public StrategyBitboard(ModelBitboard model, Random random) {
+        this.model = model;
+        this.random = random;
+    }
+
+    @Override
+    public boolean wouldPopRegion(Piece piece) {
+        // Ensures priority is given to poppable position
+        return !model.getPoppableRegions(piece).isEmpty();
+    }
+
+    @Override
+    public Cell getValidStartingPoint(Shape shape) {
+        return ModelStrategy.firstPopOrRandom(this, model, shape, random);
+    }
+
+    @Override
+    public int getStreak() {
+        return model.streak;
+    }
+}
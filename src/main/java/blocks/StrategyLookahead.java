@@ -0,0 +1,287 @@
+package blocks;
+
+import blocks.BlockShapes.Cell;
+import blocks.BlockShapes.Piece;
+import blocks.BlockShapes.Shape;
+import blocks.PlacementTable.Placement;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Exhaustive lookahead over the pieces currently in the palette.
+ * <p>
+ * Every order of the palette shapes and every legal anchor for each is tried, and the
+ * final board is scored on the points gained, whether the streak is still alive, and how
+ * many shapes from the ShapeSet could still be placed. The search works on two-long
+ * bitboards, so "undo" is just keeping the previous pair of longs on the stack.
+ * <p>
+ * Pruning: identical palette shapes are only searched in one order, and a position (board,
+ * pieces left and streak) already reached through another order with at least as many points
+ * is dominated and skipped. Positions are recognised by Zobrist key in a transposition table,
+ * which can be shared with other searches: each decision stores under its own table generation
+ * and only prunes against entries from that generation. Popping moves are tried first so that the best plan is usually
+ * found before the time budget runs out.
+ */
+public class StrategyLookahead implements ModelStrategy {
+    // evaluation weights, points come straight from the game's scoring rule
+    static final int placeableShapeWeight = 10;
+    static final int streakWeight = 5;
+    static final int emptyCellWeight = 1;
+    // a plan that cannot place every palette piece ends the game
+    static final int deadPenalty = 100_000;
+    static final long defaultTimeBudgetNanos = 50_000_000L;
+
+    // a full plan: the pieces in the order they should be placed, and the value of the final board
+    public record Plan(List<Piece> moves, int value) {
+    }
+
+    StandardModel model;
+    Supplier<List<Shape>> palette;
+    long timeBudgetNanos;
+    // a search stops after about this many positions even with time left, which unlike the clock gives
+    // the same plan on any machine, so seeded self-play can be repeated
+    long nodeBudget = Long.MAX_VALUE;
+    final Placement[][] catalogue;
+
+    // search state, reset on every decision
+    private Shape[] shapes;
+    private long started;
+    private boolean outOfTime;
+    private long nodes;
+    private int rootMoves;
+    private final Placement[] line = new Placement[3];
+    private final int[] lineShapes = new int[3];
+    private Placement[] bestLine;
+    private int[] bestLineShapes;
+    private int bestLength;
+    private int bestValue;
+    private long[] shapeKeys;
+    // each palette shape's placements and the kernel batch of them, looked up once per decision
+    private Placement[][] shapePlacements;
+    private PlacementKernel.Batch[] shapeBatches;
+    // points are relative to the decision, so entries are only used within this decision's generation
+    private int generation;
+    final TranspositionTable table;
+
+    public StrategyLookahead(StandardModel model, Supplier<List<Shape>> palette) {
+        this(model, palette, defaultTimeBudgetNanos);
+    }
+
+    public StrategyLookahead(StandardModel model, Supplier<List<Shape>> palette, long timeBudgetNanos) {
+        this(model, palette, timeBudgetNanos, new TranspositionTable(17));
+    }
+
+    public StrategyLookahead(StandardModel model, Supplier<List<Shape>> palette, long timeBudgetNanos, TranspositionTable table) {
+        this.model = model;
+        this.palette = palette;
+        this.timeBudgetNanos = timeBudgetNanos;
+        this.table = table;
+        this.catalogue = PlacementTable.catalogue();
+    }
+
+    // searches limited by positions visited rather than time, for reproducible runs
+    public static StrategyLookahead withNodeBudget(StandardModel model, Supplier<List<Shape>> palette, long nodeBudget, TranspositionTable table) {
+        StrategyLookahead lookahead = new StrategyLookahead(model, palette, Long.MAX_VALUE, table);
+        lookahead.nodeBudget = nodeBudget;
+        return lookahead;
+    }
+
+    @Override
+    public boolean wouldPopRegion(Piece piece) {
+        return !model.getPoppableRegions(piece).isEmpty();
+    }
+
+    @Override
+    public int getStreak() {
+        return model.getStreak();
+    }
+
+    // the number of positions visited by the last decision
+    public long getNodes() {
+        return nodes;
+    }
+
+    public TranspositionTable getTable() {
+        return table;
+    }
+
+    @Override
+    public Cell getValidStartingPoint(Shape shape) {
+        GameEvents.Decision event = new GameEvents.Decision();
+        event.begin();
+        // the caller chooses which piece goes next, so search the plans that start with it
+        List<Shape> pieces = new ArrayList<>(palette.get());
+        pieces.remove(shape);
+        pieces.add(0, shape);
+        Plan plan = search(pieces, true);
+        return event.decided(this, shape, rootMoves, nodes, plan.moves().isEmpty() ? null : plan.moves().get(0).loc());
+    }
+
+    // the best plan over every order of the given shapes (at most three)
+    public Plan bestPlan(List<Shape> pieces) {
+        return search(pieces, false);
+    }
+
+    private Plan search(List<Shape> pieces, boolean firstFixed) {
+        shapes = pieces.subList(0, Math.min(pieces.size(), line.length)).toArray(new Shape[0]);
+        started = System.nanoTime();
+        outOfTime = false;
+        nodes = 0;
+        rootMoves = 0;
+        bestLine = new Placement[shapes.length];
+        bestLineShapes = new int[shapes.length];
+        bestLength = 0;
+        bestValue = Integer.MIN_VALUE;
+        generation = table.newGeneration();
+        shapeKeys = new long[shapes.length];
+        shapePlacements = new Placement[shapes.length][];
+        shapeBatches = new PlacementKernel.Batch[shapes.length];
+        for (int i = 0; i < shapes.length; i++) {
+            shapePlacements[i] = PlacementTable.getShared().placements(shapes[i]);
+            shapeBatches[i] = PlacementKernel.batch(shapes[i]);
+        }
+        for (int i = 0; i < shapes.length; i++) {
+            int occurrence = 0;
+            for (int j = 0; j < i; j++) {
+                if (shapes[j].equals(shapes[i])) occurrence++;
+            }
+            shapeKeys[i] = Zobrist.shape(shapes[i], occurrence);
+        }
+
+        BoardState root = model.snapshot();
+        search(0, root.lo(), root.hi(), model.getZobristKey(), 0, root.streak(), 0, firstFixed);
+
+        List<Piece> moves = new ArrayList<>();
+        for (int i = 0; i < bestLength; i++) {
+            moves.add(new Piece(shapes[bestLineShapes[i]], bestLine[i].anchor()));
+        }
+        return new Plan(moves, bestValue);
+    }
+
+    private void search(int depth, long lo, long hi, long key, int used, int streak, int points, boolean firstFixed) {
+        nodes++;
+        // keep going until at least one complete plan has been found, unless the decision has been cancelled
+        if ((nodes & 1023) == 0 && (Thread.currentThread().isInterrupted()
+                || bestLength > 0 && (nodes >= nodeBudget || System.nanoTime() - started > timeBudgetNanos))) outOfTime = true;
+        if (outOfTime) return;
+
+        boolean placedAny = false;
+        for (int i = 0; i < shapes.length; i++) {
+            if ((used & (1 << i)) != 0 || (depth == 0 && firstFixed && i != 0)) continue;
+            if (sameAsEarlierUnused(i, used)) continue;
+            for (Placement placement : ordered(i, lo, hi)) {
+                placedAny = true;
+                if (depth == 0) rootMoves++;
+                long newLo = lo | placement.lo();
+                long newHi = hi | placement.hi();
+                int pops = 0;
+                long clearLo = 0L;
+                long clearHi = 0L;
+                for (long bits = placement.regions(); bits != 0; bits &= bits - 1) {
+                    int region = Long.numberOfTrailingZeros(bits);
+                    if ((newLo & ModelBitboard.regionLo[region]) == ModelBitboard.regionLo[region]
+                            && (newHi & ModelBitboard.regionHi[region]) == ModelBitboard.regionHi[region]) {
+                        pops++;
+                        clearLo |= ModelBitboard.regionLo[region];
+                        clearHi |= ModelBitboard.regionHi[region];
+                    }
+                }
+                newLo &= ~clearLo;
+                newHi &= ~clearHi;
+
+                int newStreak = pops == 0 ? 0 : streak + 1;
+                int newPoints = points + pops * pops * 10;
+                int newUsed = used | (1 << i);
+                boolean leaf = Integer.bitCount(newUsed) == shapes.length;
+                long newKey = Zobrist.toggle(key, lo ^ newLo, hi ^ newHi);
+                if (!leaf && dominated(newKey ^ remainingKey(newUsed) ^ Zobrist.streak(newStreak),
+                        shapes.length - depth - 1, newPoints)) continue;
+
+                line[depth] = placement;
+                lineShapes[depth] = i;
+                if (leaf) {
+                    record(depth + 1, newPoints + newStreak * streakWeight + evaluate(newLo, newHi));
+                } else {
+                    search(depth + 1, newLo, newHi, newKey, newUsed, newStreak, newPoints, firstFixed);
+                }
+                if (outOfTime) return;
+            }
+        }
+        if (!placedAny && depth > 0) {
+            // this plan gets stuck before the palette is empty
+            record(depth, points + evaluate(lo, hi) - deadPenalty);
+        }
+    }
+
+    private boolean sameAsEarlierUnused(int i, int used) {
+        for (int j = 0; j < i; j++) {
+            if ((used & (1 << j)) == 0 && shapes[j].equals(shapes[i])) return true;
+        }
+        return false;
+    }
+
+    // legal placements of palette shape i with the ones that pop something first; one kernel pass gives
+    // every placement's legality and pops, the batch being index for index with the placement table
+    private List<Placement> ordered(int i, long lo, long hi) {
+        Placement[] placements = shapePlacements[i];
+        int[] pops = new int[placements.length];
+        PlacementKernel.best().evaluate(lo, hi, shapeBatches[i], pops);
+        List<Placement> popping = new ArrayList<>();
+        List<Placement> quiet = new ArrayList<>();
+        for (int p = 0; p < placements.length; p++) {
+            if (pops[p] > 0) popping.add(placements[p]);
+            else if (pops[p] == 0) quiet.add(placements[p]);
+        }
+        popping.addAll(quiet);
+        return popping;
+    }
+
+    // true if this position was already reached this decision with at least as many points, otherwise remembers it
+    private boolean dominated(long key, int remaining, int points) {
+        long entry = table.probe(key);
+        if (entry != 0 && TranspositionTable.generation(entry) == generation
+                && TranspositionTable.value(entry) >= points) return true;
+        table.store(key, points, TranspositionTable.noMove, remaining, generation);
+        return false;
+    }
+
+    // the key of the palette pieces not yet used
+    private long remainingKey(int used) {
+        long key = 0L;
+        for (int i = 0; i < shapes.length; i++) {
+            if ((used & (1 << i)) == 0) key ^= shapeKeys[i];
+        }
+        return key;
+    }
+
+    private void record(int length, int value) {
+        if (value <= bestValue) return;
+        bestValue = value;
+        bestLength = length;
+        System.arraycopy(line, 0, bestLine, 0, length);
+        System.arraycopy(lineShapes, 0, bestLineShapes, 0, length);
+    }
+
+    // how much room the board leaves: shapes from the ShapeSet that still fit, plus empty cells
+    int evaluate(long lo, long hi) {
+        int placeable = 0;
+        for (Placement[] placements : catalogue) {
+            for (Placement placement : placements) {
+                if ((placement.lo() & lo) == 0 && (placement.hi() & hi) == 0) {
+                    placeable++;
+                    break;
+                }
+            }
+        }
+        int empty = ModelInterface.width * ModelInterface.height - Long.bitCount(lo) - Long.bitCount(hi);
+        return placeable * placeableShapeWeight + empty * emptyCellWeight;
+    }
+
+    @Override
+    public String toString() {
+        return "StrategyLookahead budget " + timeBudgetNanos / 1_000_000 + "ms, shapes " + Arrays.toString(shapes);
+    }
+}
@@ -0,0 +1,384 @@
+package blocks;
+
+import blocks.BlockShapes.Cell;
+import blocks.BlockShapes.Piece;
+import blocks.BlockShapes.Shape;
+import blocks.PlacementTable.Placement;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+/**
+ * Monte Carlo Tree Search over the current palette and random future palettes.
+ * <p>
+ * The tree covers the pieces already in the palette, whose outcomes are known. Below that,
+ * playouts draw fresh three-shape palettes at random, the way Palette.replenish does, and play
+ * on to a depth limit with a cheap pop-first policy.
+ * <p>
+ * Search is root-parallel: each worker grows its own tree from the same position with its own
+ * random stream, and the visit counts of the root moves are summed to pick the move. Workers
+ * share nothing while searching, so there is no locking.
+ */
+public class StrategyMcts implements ModelStrategy {
+    static final double exploration = 1.0;
+    static final int defaultDepthLimit = 12;
+
+    // a search budget: stop after the time or after the number of playouts, whichever comes first
+    public record Budget(long timeNanos, long playouts) {
+        public static Budget time(long millis) {
+            return new Budget(millis * 1_000_000L, Long.MAX_VALUE);
+        }
+
+        public static Budget playouts(long playouts) {
+            return new Budget(Long.MAX_VALUE, playouts);
+        }
+    }
+
+    StandardModel model;
+    Supplier<List<Shape>> palette;
+    Budget budget;
+    int threads;
+    int depthLimit = defaultDepthLimit;
+    final SplittableRandom seeds;
+    final Placement[][] catalogue;
+    private ExecutorService executor;
+
+    // statistics for the last decision
+    private long lastPlayouts;
+    private long lastElapsedNanos;
+
+    public StrategyMcts(StandardModel model, Supplier<List<Shape>> palette, Budget budget, int threads, long seed) {
+        this.model = model;
+        this.palette = palette;
+        this.budget = budget;
+        this.threads = threads;
+        this.seeds = new SplittableRandom(seed);
+        this.catalogue = PlacementTable.catalogue();
+    }
+
+    @Override
+    public boolean wouldPopRegion(Piece piece) {
+        return !model.getPoppableRegions(piece).isEmpty();
+    }
+
+    @Override
+    public int getStreak() {
+        return model.getStreak();
+    }
+
+    public long getLastPlayouts() {
+        return lastPlayouts;
+    }
+
+    public double getLastPlayoutsPerSecond() {
+        return lastPlayouts / (lastElapsedNanos / 1e9);
+    }
+
+    // stop the worker threads, the strategy can't run with more than one thread after this
+    public void shutdown() {
+        if (executor != null) executor.shutdownNow();
+    }
+
+    @Override
+    public Cell getValidStartingPoint(Shape shape) {
+        GameEvents.Decision event = new GameEvents.Decision();
+        event.begin();
+        // the caller chooses which piece goes next, so only its placements are root moves
+        List<Shape> pieces = new ArrayList<>(palette.get());
+        pieces.remove(shape);
+        pieces.add(0, shape);
+        Shape[] shapes = pieces.subList(0, Math.min(pieces.size(), 3)).toArray(new Shape[0]);
+        Placement[][] placements = new Placement[shapes.length][];
+        for (int i = 0; i < shapes.length; i++) {
+            placements[i] = PlacementTable.getShared().placements(shapes[i]);
+        }
+        BoardState board = model.snapshot();
+        long lo = board.lo();
+        long hi = board.hi();
+
+        long start = System.nanoTime();
+        List<Worker> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            long playouts = budget.playouts() == Long.MAX_VALUE ? Long.MAX_VALUE
+                    : budget.playouts() / threads + (t < budget.playouts() % threads ? 1 : 0);
+            workers.add(new Worker(placements, lo, hi, model.getStreak(), seeds.nextLong(), playouts,
+                    budget.timeNanos() == Long.MAX_VALUE ? Long.MAX_VALUE : start + budget.timeNanos()));
+        }
+        runAll(workers);
+        lastElapsedNanos = System.nanoTime() - start;
+        // a cancelled decision has no answer, and other workers' trees may still be changing
+        if (Thread.currentThread().isInterrupted()) return event.decided(this, shape, 0, 0, null);
+
+        // sum root visits over the workers, every worker expands the root in the same order
+        Node[] merged = null;
+        long[] visits = null;
+        lastPlayouts = 0;
+        for (Worker worker : workers) {
+            lastPlayouts += worker.playouts;
+            Node root = worker.root;
+            if (root.children == null) continue;
+            if (merged == null) {
+                merged = root.children;
+                visits = new long[merged.length];
+            }
+            for (int i = 0; i < root.children.length; i++) visits[i] += root.children[i].visits;
+        }
+        if (merged == null || merged.length == 0) return event.decided(this, shape, 0, lastPlayouts, null);
+        int best = 0;
+        for (int i = 1; i < merged.length; i++) {
+            if (visits[i] > visits[best]) best = i;
+        }
+        return event.decided(this, shape, merged.length, lastPlayouts, merged[best].placement.anchor());
+    }
+
+    private void runAll(List<Worker> workers) {
+        if (workers.size() == 1) {
+            workers.get(0).run();
+            return;
+        }
+        if (executor == null) {
+            executor = Executors.newFixedThreadPool(threads, runnable -> {
+                Thread thread = new Thread(runnable, "mcts-worker");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        List<Future<?>> futures = new ArrayList<>();
+        for (Worker worker : workers) futures.add(executor.submit(worker));
+        try {
+            for (Future<?> future : futures) future.get();
+        } catch (InterruptedException e) {
+            // the decision was cancelled, so stop the other workers' searches too
+            for (Future<?> future : futures) future.cancel(true);
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("MCTS worker failed", e.getCause());
+        }
+    }
+
+    // a position within the known palette, reached by placing one piece
+    static final class Node {
+        final int shapeIndex;
+        final Placement placement;
+        final long lo;
+        final long hi;
+        final int used;
+        final int streak;
+        final int points;
+        Node[] children;
+        int visits;
+        double totalReward;
+
+        Node(int shapeIndex, Placement placement, long lo, long hi, int used, int streak, int points) {
+            this.shapeIndex = shapeIndex;
+            this.placement = placement;
+            this.lo = lo;
+            this.hi = hi;
+            this.used = used;
+            this.streak = streak;
+            this.points = points;
+        }
+    }
+
+    final class Worker implements Runnable {
+        final Placement[][] shapes;
+        final Node root;
+        final SplittableRandom random;
+        final long maxPlayouts;
+        final long deadline;
+        long playouts;
+        // scratch for applying a placement
+        long nextLo;
+        long nextHi;
+        final Node[] path = new Node[4];
+        final Placement[] legal = new Placement[ModelInterface.width * ModelInterface.height];
+        final Placement[][] future = new Placement[3][];
+
+        Worker(Placement[][] shapes, long lo, long hi, int streak, long seed, long maxPlayouts, long deadline) {
+            this.shapes = shapes;
+            this.root = new Node(-1, null, lo, hi, 0, streak, 0);
+            this.random = new SplittableRandom(seed);
+            this.maxPlayouts = maxPlayouts;
+            this.deadline = deadline;
+        }
+
+        @Override
+        public void run() {
+            while (playouts < maxPlayouts) {
+                // the clock and a cancelled decision are only checked every 64 playouts, and never before the first one
+                if (playouts > 0 && (playouts & 63) == 0
+                        && (System.nanoTime() >= deadline || Thread.currentThread().isInterrupted())) break;
+                iterate();
+                playouts++;
+                // nothing to decide with a single legal move, or none
+                if (root.children != null && root.children.length <= 1) break;
+            }
+        }
+
+        void iterate() {
+            int depth = 0;
+            Node node = root;
+            path[depth++] = node;
+            // selection
+            while (node.children != null && node.children.length > 0) {
+                node = select(node);
+                path[depth++] = node;
+            }
+            // expansion, the root's children are restricted to the first shape
+            if (node.children == null && node.used != (1 << shapes.length) - 1) {
+                expand(node);
+                if (node.children.length > 0) {
+                    node = node.children[random.nextInt(node.children.length)];
+                    path[depth++] = node;
+                }
+            }
+            double reward = node.children != null && node.children.length == 0
+                    ? 0.0 : playout(node);
+            for (int i = 0; i < depth; i++) {
+                path[i].visits++;
+                path[i].totalReward += reward;
+            }
+        }
+
+        Node select(Node node) {
+            Node best = null;
+            double bestScore = Double.NEGATIVE_INFINITY;
+            double logVisits = Math.log(node.visits + 1);
+            for (Node child : node.children) {
+                if (child.visits == 0) return child;
+                double score = child.totalReward / child.visits + exploration * Math.sqrt(logVisits / child.visits);
+                if (score > bestScore) {
+                    bestScore = score;
+                    best = child;
+                }
+            }
+            return best;
+        }
+
+        void expand(Node node) {
+            List<Node> children = new ArrayList<>();
+            for (int i = 0; i < shapes.length; i++) {
+                if ((node.used & (1 << i)) != 0 || (node == root && i != 0)) continue;
+                if (sameAsEarlierUnused(i, node.used)) continue;
+                for (Placement placement : shapes[i]) {
+                    if ((placement.lo() & node.lo) != 0 || (placement.hi() & node.hi) != 0) continue;
+                    int pops = apply(node.lo, node.hi, placement);
+                    children.add(new Node(i, placement, nextLo, nextHi, node.used | (1 << i),
+                            pops == 0 ? 0 : node.streak + 1, node.points + pops * pops * 10));
+                }
+            }
+            node.children = children.toArray(new Node[0]);
+        }
+
+        boolean sameAsEarlierUnused(int i, int used) {
+            for (int j = 0; j < i; j++) {
+                if ((used & (1 << j)) == 0 && shapes[j] == shapes[i]) return true;
+            }
+            return false;
+        }
+
+        // play on from the node with the rest of the known palette, then random palettes
+        double playout(Node node) {
+            long lo = node.lo;
+            long hi = node.hi;
+            int points = node.points;
+            int moves = 0;
+            int remaining = 0;
+            for (int i = 0; i < shapes.length; i++) {
+                if ((node.used & (1 << i)) == 0) future[remaining++] = shapes[i];
+            }
+            while (moves < depthLimit) {
+                if (remaining == 0) {
+                    for (int i = 0; i < 3; i++) future[i] = catalogue[random.nextInt(catalogue.length)];
+                    remaining = 3;
+                }
+                // place the pieces in a random order, each at a popping anchor if there is one
+                int pick = random.nextInt(remaining);
+                Placement[] piece = future[pick];
+                future[pick] = future[--remaining];
+                int nLegal = 0;
+                Placement chosen = null;
+                for (Placement placement : piece) {
+                    if ((placement.lo() & lo) != 0 || (placement.hi() & hi) != 0) continue;
+                    legal[nLegal++] = placement;
+                    if (chosen == null && apply(lo, hi, placement) > 0) chosen = placement;
+                }
+                if (nLegal == 0) {
+                    // game over inside the horizon
+                    return reward(points, moves) * 0.5;
+                }
+                if (chosen == null) chosen = legal[random.nextInt(nLegal)];
+                int pops = apply(lo, hi, chosen);
+                lo = nextLo;
+                hi = nextHi;
+                points += pops * pops * 10;
+                moves++;
+            }
+            return reward(points, moves);
+        }
+
+        double reward(int points, int moves) {
+            return 0.5 * moves / depthLimit + 0.5 * (1.0 - 1.0 / (1.0 + points / 40.0));
+        }
+
+        // place onto (lo, hi), leaving the board after pops in nextLo and nextHi, and return the number of pops
+        int apply(long lo, long hi, Placement placement) {
+            long newLo = lo | placement.lo();
+            long newHi = hi | placement.hi();
+            long clearLo = 0L;
+            long clearHi = 0L;
+            int pops = 0;
+            for (long bits = placement.regions(); bits != 0; bits &= bits - 1) {
+                int region = Long.numberOfTrailingZeros(bits);
+                if ((newLo & ModelBitboard.regionLo[region]) == ModelBitboard.regionLo[region]
+                        && (newHi & ModelBitboard.regionHi[region]) == ModelBitboard.regionHi[region]) {
+                    pops++;
+                    clearLo |= ModelBitboard.regionLo[region];
+                    clearHi |= ModelBitboard.regionHi[region];
+                }
+            }
+            nextLo = newLo & ~clearLo;
+            nextHi = newHi & ~clearHi;
+            return pops;
+        }
+    }
+
+    // reports playouts per second, and per core, for 1 to N worker threads on a mid-game board
+    // usage: java blocks.StrategyMcts [millis per decision] [max threads]
+    public static void main(String[] args) {
+        long millis = args.length > 0 ? Long.parseLong(args[0]) : 500;
+        int maxThreads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        ModelBitboard board = new ModelBitboard();
+        Random random = new Random(42);
+        Palette palette = new Palette(random);
+        StrategyBitboard opener = new StrategyBitboard(board, random);
+        for (int move = 0; move < 12; move++) {
+            Shape shape = palette.getShapes().get(random.nextInt(palette.getShapes().size()));
+            Cell cell = opener.getValidStartingPoint(shape);
+            if (cell != null) board.place(new Piece(shape, cell));
+        }
+        List<Shape> shapes = palette.getShapesToPlace();
+        System.out.println("occupied cells: " + board.getOccupiedCells().size() + "  palette: " + shapes);
+        List<Integer> threadCounts = new ArrayList<>();
+        for (int threads = 1; threads < maxThreads; threads *= 2) threadCounts.add(threads);
+        threadCounts.add(maxThreads);
+        double single = 0;
+        for (int threads : threadCounts) {
+            StrategyMcts mcts = new StrategyMcts(board, () -> shapes, Budget.time(millis), threads, 42L);
+            mcts.getValidStartingPoint(shapes.get(0)); // warm up
+            mcts.getValidStartingPoint(shapes.get(0));
+            double rate = mcts.getLastPlayoutsPerSecond();
+            if (threads == 1) single = rate;
+            System.out.printf("threads: %2d  playouts/sec: %,10.0f  per core: %,9.0f  speedup: %.2f%n",
+                    threads, rate, rate / threads, rate / single);
+            mcts.shutdown();
+        }
+    }
+}
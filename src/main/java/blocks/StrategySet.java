@@ -4,34 +4,31 @@ import blocks.BlockShapes.Shape;
 import blocks.BlockShapes.Piece;
 import blocks.BlockShapes.Cell;
 
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Random;
 
 public class StrategySet implements ModelStrategy {
     ModelSet model;
 
+    Random random;
+
     public StrategySet(ModelSet model) {
+        this(model, new Random());
+    }
+
+    public StrategySet(ModelSet model, Random random) {
         this.model = model;
+        this.random = random;
     }
 
     @Override
     public boolean wouldPopRegion(Piece piece) {
         // Ensures priority is given to poppable position
-        return model.regions.stream().anyMatch(shape -> model.getPoppableRegions(piece).contains(shape));
+        return !model.getPoppableRegions(piece).isEmpty();
     }
 
     @Override
     public Cell getValidStartingPoint(Shape shape) {
-        List<Cell> validStartingPoints = new ArrayList<>();
-        for (Cell cell : model.locations) {
-            if (model.canPlace(new Piece(shape, cell))) {
-                if (wouldPopRegion(new Piece(shape, cell))) return cell;
-                validStartingPoints.add(cell);
-            }
-        }
-        if (validStartingPoints.isEmpty()) return null;
-        return validStartingPoints.get(new Random().nextInt(validStartingPoints.size()));
+        return ModelStrategy.firstPopOrRandom(this, model, shape, random);
     }
 
     @Override
@@ -0,0 +1,39 @@
+package blocks;
+
+import blocks.BlockShapes.Cell;
+import blocks.BlockShapes.Piece;
+import blocks.BlockShapes.Shape;
+
+import java.util.Random;
+
+public class StrategyWords implements ModelStrategy {
+    // the same policy as the other random strategies, on a board of any size:
+    // the first anchor that pops something, otherwise a random legal one
+    ModelWords model;
+
+    Random random;
+
+    public StrategyWords(ModelWords model) {
+        this(model, new Random());
+    }
+
+    public StrategyWords(ModelWords model, Random random) {
+        this.model = model;
+        this.random = random;
+    }
+
+    @Override
+    public boolean wouldPopRegion(Piece piece) {
+        return !model.getPoppableRegions(piece).isEmpty();
+    }
+
+    @Override
+    public Cell getValidStartingPoint(Shape shape) {
+        return ModelStrategy.firstPopOrRandom(this, model, shape, random);
+    }
+
+    @Override
+    public int getStreak() {
+        return model.getStreak();
+    }
+}
@@ -0,0 +1,76 @@
+package blocks;
+
+import blocks.BlockShapes.Cell;
+import blocks.BlockShapes.Shape;
+
+import javax.swing.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class StrategyWorker {
+    // runs a strategy's decisions on a background thread so a slow strategy can't freeze the UI;
+    // the answer is handed back on the event dispatch thread, and an answer for a board that has
+    // changed since the question was asked is dropped by cancelling its future; cancelling a decision
+    // also interrupts the search, which the lookahead and MCTS strategies check for, so a stale search
+    // doesn't hold the worker thread
+
+    final ModelInterface model;
+    final ModelStrategy strategy;
+    // strategies aren't thread safe, so decisions are made one at a time
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "strategy-worker");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private CompletableFuture<Cell> pending = null;
+    // the task making the pending decision on the worker thread
+    private Future<?> running = null;
+
+    public StrategyWorker(ModelInterface model, ModelStrategy strategy) {
+        this.model = model;
+        this.strategy = strategy;
+    }
+
+    // the strategy's starting point for the shape, completed on the event dispatch thread
+    // any decision still pending is cancelled first
+    public CompletableFuture<Cell> getValidStartingPoint(Shape shape) {
+        cancel();
+        long boardKey = model.getZobristKey();
+        CompletableFuture<Cell> result = new CompletableFuture<>();
+        running = executor.submit(() -> {
+            Cell startingPoint = null;
+            Throwable failure = null;
+            try {
+                startingPoint = strategy.getValidStartingPoint(shape);
+            } catch (RuntimeException | Error e) {
+                failure = e;
+            }
+            Cell answer = startingPoint;
+            Throwable error = failure;
+            // a cancelled decision's result is already done, so whatever the interrupted search returned is ignored
+            SwingUtilities.invokeLater(() -> {
+                if (error != null) result.completeExceptionally(error);
+                else if (model.getZobristKey() != boardKey) result.cancel(false);
+                else result.complete(answer);
+            });
+        });
+        pending = result;
+        return result;
+    }
+
+    // drop the pending decision, e.g. because the board has changed or the game is over,
+    // and stop the search making it
+    public void cancel() {
+        if (pending != null) pending.cancel(false);
+        if (running != null) running.cancel(true);
+        pending = null;
+        running = null;
+    }
+
+    public void shutdown() {
+        cancel();
+        executor.shutdownNow();
+    }
+}
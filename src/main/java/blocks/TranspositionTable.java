@@ -0,0 +1,156 @@
+package blocks;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A fixed-size transposition table keyed by Zobrist keys, for sharing between searches.
+ * <p>
+ * Entries live in two-slot buckets. The first slot keeps the entry with the most search below
+ * it, unless it is from another generation; the second slot is always replaced. Each entry
+ * packs value, move, depth and generation into one long, stored next to key ^ data, so a
+ * half-written entry from another thread fails the key check instead of returning bad data.
+ * <p>
+ * Each search takes its own generation from newGeneration and passes it to store, so searches
+ * running at the same time can tell their own entries from each other's.
+ */
+public class TranspositionTable {
+    public static final int noMove = 0xFFFF;
+
+    private final long[] checks;
+    private final long[] data;
+    private final int bucketMask;
+    // generations run 1..255 so that a packed entry is never 0, which marks an empty slot
+    private final AtomicInteger generation = new AtomicInteger(1);
+
+    private final LongAdder probes = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder stores = new LongAdder();
+    private final LongAdder overwrites = new LongAdder();
+
+    // 2^log2Entries entries of 16 bytes each
+    public TranspositionTable(int log2Entries) {
+        int entries = 1 << Math.max(1, log2Entries);
+        checks = new long[entries];
+        data = new long[entries];
+        bucketMask = entries / 2 - 1;
+    }
+
+    public static TranspositionTable ofMegabytes(int megabytes) {
+        long entries = Math.max(2, (long) megabytes * 1024 * 1024 / 16);
+        return new TranspositionTable(63 - Long.numberOfLeadingZeros(entries));
+    }
+
+    // a generation for the caller's search, call once per decision and store with it
+    public int newGeneration() {
+        return generation.updateAndGet(g -> g % 255 + 1);
+    }
+
+    // the generation most recently handed out
+    public int generation() {
+        return generation.get();
+    }
+
+    private static long pack(int value, int move, int depth, int generation) {
+        return ((long) value << 32) | ((long) (move & 0xFFFF) << 16) | ((depth & 0xFF) << 8) | (generation & 0xFF);
+    }
+
+    // the packed entry for the key, or 0 if there is none; read it with value, move, depth and generation
+    public long probe(long key) {
+        probes.increment();
+        int slot = (int) (key & bucketMask) << 1;
+        for (int i = slot; i < slot + 2; i++) {
+            long entry = data[i];
+            if ((checks[i] ^ entry) == key && entry != 0) {
+                hits.increment();
+                return entry;
+            }
+        }
+        return 0L;
+    }
+
+    public static int value(long entry) {
+        return (int) (entry >> 32);
+    }
+
+    public static int move(long entry) {
+        return (int) (entry >>> 16) & 0xFFFF;
+    }
+
+    public static int depth(long entry) {
+        return (int) (entry >>> 8) & 0xFF;
+    }
+
+    public static int generation(long entry) {
+        return (int) entry & 0xFF;
+    }
+
+    // entries from generations other than the caller's are replaced first
+    public void store(long key, int value, int move, int depth, int generation) {
+        stores.increment();
+        long entry = pack(value, move, depth, generation);
+        int slot = (int) (key & bucketMask) << 1;
+        // same position: update whichever slot holds it
+        for (int i = slot; i < slot + 2; i++) {
+            if ((checks[i] ^ data[i]) == key && data[i] != 0) {
+                write(i, key, entry);
+                return;
+            }
+        }
+        long first = data[slot];
+        boolean firstReplaceable = first == 0 || generation(first) != generation || depth(first) <= depth;
+        int target = firstReplaceable ? slot : slot + 1;
+        if (data[target] != 0) overwrites.increment();
+        write(target, key, entry);
+    }
+
+    private void write(int i, long key, long entry) {
+        data[i] = entry;
+        checks[i] = key ^ entry;
+    }
+
+    public void clear() {
+        Arrays.fill(checks, 0L);
+        Arrays.fill(data, 0L);
+        probes.reset();
+        hits.reset();
+        stores.reset();
+        overwrites.reset();
+    }
+
+    public long getProbes() {
+        return probes.sum();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public double getHitRate() {
+        long probes = getProbes();
+        return probes == 0 ? 0.0 : (double) getHits() / probes;
+    }
+
+    public long getStores() {
+        return stores.sum();
+    }
+
+    public long getOverwrites() {
+        return overwrites.sum();
+    }
+
+    public int getCapacity() {
+        return data.length;
+    }
+
+    // the two entry arrays, which is all the table holds
+    public long getMemoryBytes() {
+        return 16L * data.length;
+    }
+
+    public String toString() {
+        return String.format("TranspositionTable entries: %d (%.1f MB)  probes: %d  hit rate: %.1f%%  stores: %d  overwrites: %d",
+                getCapacity(), getMemoryBytes() / (1024.0 * 1024.0), getProbes(), 100 * getHitRate(), getStores(), getOverwrites());
+    }
+}
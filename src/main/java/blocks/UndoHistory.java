@@ -0,0 +1,171 @@
+package blocks;
+
+// the states a live model can go back and forward to; a state is kept as the board's words then the score and
+// streak packed into one more, so 24 bytes a move on a 9x9 board with no object for each, and nothing is held
+// until the first move; 9x9 models go through BoardState, boards of any size through their words
+public class UndoHistory {
+    static final int defaultLimit = 1000;
+    private static final long[] none = new long[0];
+
+    private final States undo;
+    private final States redo;
+    private final int limit;
+
+    public UndoHistory() {
+        this(defaultLimit);
+    }
+
+    // keeps at most limit states to undo to, dropping the oldest
+    public UndoHistory(int limit) {
+        this(limit, 2);
+    }
+
+    // for a board held in boardWords longs
+    public UndoHistory(int limit, int boardWords) {
+        this.limit = limit;
+        this.undo = new States(boardWords + 1);
+        this.redo = new States(boardWords + 1);
+    }
+
+    static long pack(int score, int streak) {
+        return (long) score << 32 | streak & 0xFFFFFFFFL;
+    }
+
+    static int score(long packed) {
+        return (int) (packed >> 32);
+    }
+
+    static int streak(long packed) {
+        return (int) packed;
+    }
+
+    // a stack of states on a ring of longs that grows as needed, so the oldest can be dropped in O(1)
+    private static final class States {
+        private final int stride;
+        private long[] words = none;
+        // the ring index of the oldest state, and the number of states held
+        private int first = 0;
+        private int size = 0;
+
+        States(int stride) {
+            this.stride = stride;
+        }
+
+        private int capacity() {
+            return words.length / stride;
+        }
+
+        // the offset to write a new state at, or -1 if no states are kept
+        private int push(int limit) {
+            if (limit == 0) return -1;
+            if (size == limit) {
+                first = (first + 1) % capacity();
+                size--;
+            }
+            if (size == capacity()) grow(limit);
+            return (first + size++) % capacity() * stride;
+        }
+
+        void push(long lo, long hi, long packed, int limit) {
+            int at = push(limit);
+            if (at < 0) return;
+            words[at] = lo;
+            words[at + 1] = hi;
+            words[at + 2] = packed;
+        }
+
+        void push(long[] board, long packed, int limit) {
+            int at = push(limit);
+            if (at < 0) return;
+            System.arraycopy(board, 0, words, at, stride - 1);
+            words[at + stride - 1] = packed;
+        }
+
+        // the offset of the newest state, which is removed; it stays readable until the next push
+        int pop() {
+            size--;
+            return (first + size) % capacity() * stride;
+        }
+
+        BoardState popState() {
+            int at = pop();
+            return new BoardState(words[at], words[at + 1], score(words[at + 2]), streak(words[at + 2]));
+        }
+
+        // copies the newest state's board into the array and returns its packed score and streak
+        long popInto(long[] board) {
+            int at = pop();
+            System.arraycopy(words, at, board, 0, stride - 1);
+            return words[at + stride - 1];
+        }
+
+        private void grow(int limit) {
+            long[] grown = new long[Math.min(Math.max(8, capacity() * 2), limit) * stride];
+            for (int i = 0; i < size; i++) {
+                System.arraycopy(words, (first + i) % capacity() * stride, grown, i * stride, stride);
+            }
+            words = grown;
+            first = 0;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        void clear() {
+            words = none;
+            first = 0;
+            size = 0;
+        }
+    }
+
+    // the model is about to leave this state through a new move, which ends any redo
+    void changing(BoardState before) {
+        undo.push(before.lo(), before.hi(), pack(before.score(), before.streak()), limit);
+        redo.clear();
+    }
+
+    // the state to go back to from current, or null if there is none
+    BoardState undo(BoardState current) {
+        if (undo.isEmpty()) return null;
+        redo.push(current.lo(), current.hi(), pack(current.score(), current.streak()), limit);
+        return undo.popState();
+    }
+
+    BoardState redo(BoardState current) {
+        if (redo.isEmpty()) return null;
+        undo.push(current.lo(), current.hi(), pack(current.score(), current.streak()), limit);
+        return redo.popState();
+    }
+
+    // as above for a board of any size: the board's words, with the score and streak packed by pack
+    void changing(long[] board, long packed) {
+        undo.push(board, packed, limit);
+        redo.clear();
+    }
+
+    // the board is overwritten with the state to go back to and its packed score and streak are returned;
+    // check canUndo first
+    long undo(long[] board, long packed) {
+        redo.push(board, packed, limit);
+        return undo.popInto(board);
+    }
+
+    long redo(long[] board, long packed) {
+        undo.push(board, packed, limit);
+        return redo.popInto(board);
+    }
+
+    public boolean canUndo() {
+        return !undo.isEmpty();
+    }
+
+    public boolean canRedo() {
+        return !redo.isEmpty();
+    }
+
+    public void clear() {
+        undo.clear();
+        redo.clear();
+    }
+}
@@ -0,0 +1,101 @@
+package blocks;
+
+import blocks.BlockShapes.Cell;
+import blocks.BlockShapes.Shape;
+import blocks.BlockShapes.ShapeSet;
+
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+/**
+ * Zobrist keys for board positions.
+ * <p>
+ * Every grid cell has a fixed random 64-bit key, and a board's key is the XOR of the keys of
+ * its occupied cells, so placing or removing a cell updates the key with a single XOR.
+ * Palette shapes and the streak have keys too, for searches where two positions with the same
+ * board but different pieces left are not the same.
+ */
+public class Zobrist {
+    private static final long[] cellKeys = new long[ModelInterface.width * ModelInterface.height];
+    private static final List<Shape> shapeSet = ShapeSet.shared();
+    // one key per ShapeSet shape per palette slot, so a palette holding a shape twice differs from holding it once
+    private static final long[][] shapeKeys = new long[shapeSet.size()][3];
+    private static final long[] streakKeys = new long[64];
+
+    static {
+        // fixed seed so that keys are the same on every run and in every thread
+        SplittableRandom random = new SplittableRandom(0x5EED_B10C5L);
+        for (int i = 0; i < cellKeys.length; i++) cellKeys[i] = random.nextLong();
+        for (long[] keys : shapeKeys) {
+            for (int i = 0; i < keys.length; i++) keys[i] = random.nextLong();
+        }
+        for (int i = 0; i < streakKeys.length; i++) streakKeys[i] = random.nextLong();
+    }
+
+    // cell keys for a board of any size, the 9x9 board gets the keys above
+    static long[] cellKeys(int width, int height) {
+        if (width == ModelInterface.width && height == ModelInterface.height) return cellKeys.clone();
+        SplittableRandom random = new SplittableRandom(0x5EED_B10C5L ^ ((long) width << 32 | height));
+        long[] keys = new long[width * height];
+        for (int i = 0; i < keys.length; i++) keys[i] = random.nextLong();
+        return keys;
+    }
+
+    public static long cell(int x, int y) {
+        return cellKeys[y * ModelInterface.width + x];
+    }
+
+    // off-grid cells are never part of a board, so they don't change a key
+    public static long cell(Cell cell) {
+        return ModelInterface.inBounds(cell.x(), cell.y()) ? cell(cell.x(), cell.y()) : 0L;
+    }
+
+    // the key of the occupied cells of a (lo, hi) bitboard
+    public static long of(long lo, long hi) {
+        return toggle(0L, lo, hi);
+    }
+
+    public static long of(Set<Cell> occupiedCells) {
+        long key = 0L;
+        for (Cell cell : occupiedCells) key ^= cell(cell);
+        return key;
+    }
+
+    // update a key for the cells that changed, e.g. old ^ new of a bitboard
+    public static long toggle(long key, long changedLo, long changedHi) {
+        for (long bits = changedLo; bits != 0; bits &= bits - 1) key ^= cellKeys[Long.numberOfTrailingZeros(bits)];
+        for (long bits = changedHi; bits != 0; bits &= bits - 1) key ^= cellKeys[64 + Long.numberOfTrailingZeros(bits)];
+        return key;
+    }
+
+    // the key of a shape held in the palette for the given time (0, 1 or 2 for repeats)
+    public static long shape(Shape shape, int occurrence) {
+        int index = shapeSet.indexOf(shape);
+        if (index >= 0 && occurrence < 3) return shapeKeys[index][occurrence];
+        // shapes outside the ShapeSet get a key mixed from their contents
+        return mix(shape.hashCode() * 31L + occurrence);
+    }
+
+    public static long palette(List<Shape> shapes) {
+        long key = 0L;
+        for (int i = 0; i < shapes.size(); i++) {
+            int occurrence = 0;
+            for (int j = 0; j < i; j++) {
+                if (shapes.get(j).equals(shapes.get(i))) occurrence++;
+            }
+            key ^= shape(shapes.get(i), occurrence);
+        }
+        return key;
+    }
+
+    public static long streak(int streak) {
+        return streak < streakKeys.length ? streakKeys[streak] : mix(~streak);
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -3,13 +3,21 @@ package blocks;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
+import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.junit.jupiter.api.Assertions.*;
 import blocks.BlockShapes.Piece;
 import blocks.BlockShapes.Shape;
 import blocks.BlockShapes.Cell;
+import blocks.BlockShapes.ShapeSet;
 
 public abstract class AbstractModelTest {
 
@@ -123,6 +131,242 @@ public abstract class AbstractModelTest {
 //    }
 //
 
+    @Test
+    void testGetPoppableRegionsAfterPopAndRemove() {
+        Shape lineShape = new Shape(List.of(
+                new Cell(0, 0), new Cell(1, 0), new Cell(2, 0)
+        ));
+        model.place(new Piece(lineShape, new Cell(0, 0)));
+        model.place(new Piece(lineShape, new Cell(3, 0)));
+        Piece lastPiece = new Piece(lineShape, new Cell(6, 0));
+        assertEquals(1, model.getPoppableRegions(lastPiece).size(), "The last line should complete the top row.");
+
+        model.place(lastPiece);
+        assertTrue(model.getOccupiedCells().isEmpty(), "The top row should have popped.");
+        assertTrue(model.getPoppableRegions(lastPiece).isEmpty(), "Nothing should pop on an empty board.");
+
+        model.place(new Piece(lineShape, new Cell(0, 0)));
+        model.place(new Piece(lineShape, new Cell(3, 0)));
+        model.remove(new Shape(List.of(new Cell(0, 0))));
+        assertTrue(model.getPoppableRegions(lastPiece).isEmpty(), "A removed cell should leave the row incomplete.");
+    }
+
+    @Test
+    void testZobristKeyFollowsPlaceAndPop() {
+        Shape lineShape = new Shape(List.of(
+                new Cell(0, 0), new Cell(1, 0), new Cell(2, 0)
+        ));
+        assertEquals(0L, model.getZobristKey(), "An empty board should have key 0.");
+        model.place(new Piece(lineShape, new Cell(0, 0)));
+        model.place(new Piece(lineShape, new Cell(3, 0)));
+        model.place(new Piece(lineShape, new Cell(4, 1)));
+        assertEquals(Zobrist.of(model.getOccupiedCells()), model.getZobristKey());
+
+        model.place(new Piece(lineShape, new Cell(6, 0)));
+        assertEquals(Zobrist.of(model.getOccupiedCells()), model.getZobristKey(), "The key should follow a region pop.");
+        model.remove(lineShape);
+        assertEquals(Zobrist.of(model.getOccupiedCells()), model.getZobristKey());
+    }
+
+    @Test
+    void testGetPoppableCellsIsUnionOfRegions() {
+        Shape lineShape = new Shape(List.of(
+                new Cell(0, 0), new Cell(1, 0), new Cell(2, 0)
+        ));
+        Shape single = new Shape(List.of(new Cell(0, 0)));
+        // fill the top row and the first column apart from (0, 0), so one cell pops both
+        model.place(new Piece(lineShape, new Cell(1, 0)));
+        model.place(new Piece(lineShape, new Cell(4, 0)));
+        model.place(new Piece(single, new Cell(7, 0)));
+        model.place(new Piece(single, new Cell(8, 0)));
+        for (int y = 1; y < ModelInterface.height; y++) model.place(new Piece(single, new Cell(0, y)));
+
+        Piece corner = new Piece(single, new Cell(0, 0));
+        BitSet expected = new BitSet();
+        for (Shape region : model.getPoppableRegions(corner)) {
+            for (Cell cell : region) expected.set(cell.y() * ModelInterface.width + cell.x());
+        }
+        assertEquals(ModelInterface.width + ModelInterface.height - 1, expected.cardinality());
+        assertEquals(expected, model.getPoppableCells(corner));
+        assertTrue(model.getPoppableCells(new Piece(single, new Cell(8, 0))).isEmpty(), "An occupied cell pops nothing.");
+        assertTrue(model.getPoppableCells(new Piece(single, new Cell(4, 4))).isEmpty());
+    }
+
+    @Test
+    void testPlaceCountingPops() {
+        Shape lineShape = new Shape(List.of(
+                new Cell(0, 0), new Cell(1, 0), new Cell(2, 0)
+        ));
+        Shape single = new Shape(List.of(new Cell(0, 0)));
+        assertEquals(0, model.placeCountingPops(new Piece(lineShape, new Cell(1, 0))));
+        model.place(new Piece(lineShape, new Cell(4, 0)));
+        model.place(new Piece(single, new Cell(7, 0)));
+        model.place(new Piece(single, new Cell(8, 0)));
+        for (int y = 1; y < ModelInterface.height; y++) model.place(new Piece(single, new Cell(0, y)));
+
+        assertEquals(2, model.placeCountingPops(new Piece(single, new Cell(0, 0))), "The corner should finish a row and a column.");
+        assertEquals(40, model.getScore());
+        assertTrue(model.getOccupiedCells().isEmpty());
+    }
+
+    @Test
+    void testIsGameOverFollowsPlaceAndPop() {
+        // the cached legal anchors must agree with a full scan of the board after every move
+        Random random = new Random(7);
+        List<Shape> shapes = new ShapeSet().getShapes();
+        for (int move = 0; move < 200; move++) {
+            Shape shape = shapes.get(random.nextInt(shapes.size()));
+            Piece piece = new Piece(shape, new Cell(random.nextInt(ModelInterface.width), random.nextInt(ModelInterface.height)));
+            if (model.canPlace(piece)) model.place(piece);
+            if (move % 50 == 49) model.remove(new RegionHelper().allRegions().get(random.nextInt(27)));
+            for (Shape s : shapes) {
+                boolean placeable = false;
+                for (int x = 0; x < ModelInterface.width && !placeable; x++) {
+                    for (int y = 0; y < ModelInterface.height && !placeable; y++) {
+                        placeable = model.canPlace(new Piece(s, new Cell(x, y)));
+                    }
+                }
+                assertEquals(!placeable, model.isGameOver(List.of(s)), "Move " + move + ", shape " + s);
+            }
+        }
+    }
+
+    @Test
+    void testBatchAnchorsMatchPerAnchorQueries() {
+        Random random = new Random(5);
+        List<Shape> shapes = new ShapeSet().getShapes();
+        for (int move = 0; move < 150; move++) {
+            Piece next = new Piece(shapes.get(random.nextInt(shapes.size())),
+                    new Cell(random.nextInt(ModelInterface.width), random.nextInt(ModelInterface.height)));
+            if (model.canPlace(next)) model.place(next);
+            if (move % 10 != 0) continue;
+            for (Shape shape : shapes) {
+                BitSet legal = model.getLegalAnchors(shape);
+                int[] pops = model.getAnchorPopCounts(shape);
+                for (int x = 0; x < ModelInterface.width; x++) {
+                    for (int y = 0; y < ModelInterface.height; y++) {
+                        Piece piece = new Piece(shape, new Cell(x, y));
+                        int index = y * ModelInterface.width + x;
+                        assertEquals(model.canPlace(piece), legal.get(index), "Move " + move + " " + piece);
+                        int expected = model.canPlace(piece) ? model.getPoppableRegions(piece).size() : -1;
+                        assertEquals(expected, pops[index], "Move " + move + " " + piece);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void testUndoRedoRetraceTheGame() {
+        // play a game, checking the model against the immutable state it should match after every move
+        Random random = new Random(11);
+        List<Shape> shapes = new ShapeSet().getShapes();
+        model.keepHistory(UndoHistory.defaultLimit);
+        List<BoardState> states = new ArrayList<>();
+        states.add(stateOf(model));
+        assertEquals(BoardState.empty, stateOf(model));
+        for (int move = 0; move < 300; move++) {
+            Piece piece = new Piece(shapes.get(random.nextInt(shapes.size())),
+                    new Cell(random.nextInt(ModelInterface.width), random.nextInt(ModelInterface.height)));
+            if (!model.canPlace(piece)) continue;
+            BoardState expected = stateOf(model).place(piece);
+            model.place(piece);
+            assertEquals(expected, stateOf(model), "Move " + move);
+            states.add(expected);
+        }
+        assertTrue(model.getScore() > 0, "The game should have popped something.");
+
+        for (int i = states.size() - 2; i >= 0; i--) {
+            assertTrue(model.undo());
+            assertMatches(states.get(i));
+        }
+        assertFalse(model.undo(), "There is nothing before the first move.");
+        for (int i = 1; i < states.size(); i++) {
+            assertTrue(model.redo());
+            assertMatches(states.get(i));
+        }
+        assertFalse(model.redo());
+
+        // a new move after an undo ends the redo
+        model.undo();
+        model.place(new Piece(shapes.get(0), new Cell(0, 0)));
+        assertFalse(model.redo());
+    }
+
+    @Test
+    void testQueriesFromSeveralThreadsAgree() throws Exception {
+        Random random = new Random(3);
+        List<Shape> shapes = new ShapeSet().getShapes();
+        for (int move = 0; move < 40; move++) {
+            Piece piece = new Piece(shapes.get(random.nextInt(shapes.size())),
+                    new Cell(random.nextInt(ModelInterface.width), random.nextInt(ModelInterface.height)));
+            if (model.canPlace(piece)) model.place(piece);
+        }
+        List<int[]> expected = new ArrayList<>();
+        for (Shape shape : shapes) expected.add(model.getAnchorPopCounts(shape));
+
+        // the queries write nothing shared, so threads asking at once see what one thread does
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Boolean>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int round = 0; round < 50; round++) {
+                        for (int i = 0; i < shapes.size(); i++) {
+                            if (!Arrays.equals(expected.get(i), model.getAnchorPopCounts(shapes.get(i)))) return false;
+                            model.getLegalAnchors(shapes.get(i));
+                        }
+                        model.isGameOver(shapes);
+                    }
+                    return true;
+                }));
+            }
+            for (Future<Boolean> future : futures) assertTrue(future.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testNoHistoryUnlessAsked() {
+        Shape single = new Shape(List.of(new Cell(0, 0)));
+        model.place(new Piece(single, new Cell(4, 4)));
+        assertFalse(model.undo(), "A model keeps no history by default.");
+        model.keepHistory(10);
+        model.place(new Piece(single, new Cell(5, 5)));
+        assertTrue(model.undo());
+        assertFalse(model.undo(), "Moves before the history was kept can't be undone.");
+        assertEquals(Set.of(new Cell(4, 4)), model.getOccupiedCells());
+    }
+
+    // the 9x9 board, score and streak read through the interface, so every model can be checked against a BoardState
+    static BoardState stateOf(ModelInterface model) {
+        long lo = 0L;
+        long hi = 0L;
+        for (Cell cell : model.getOccupiedCells()) {
+            int bit = ModelBitboard.bitIndex(cell);
+            if (bit < 64) lo |= 1L << bit;
+            else hi |= 1L << (bit - 64);
+        }
+        return new BoardState(lo, hi, model.getScore(), model.getStreak());
+    }
+
+    void assertMatches(BoardState state) {
+        assertEquals(state, stateOf(model));
+        assertEquals(state.occupiedCells(), model.getOccupiedCells());
+        assertEquals(state.zobristKey(), model.getZobristKey());
+        // the cached legal anchors have to follow the restore too
+        for (Shape shape : new ShapeSet().getShapes()) {
+            boolean placeable = false;
+            for (int x = 0; x < ModelInterface.width && !placeable; x++) {
+                for (int y = 0; y < ModelInterface.height && !placeable; y++) {
+                    placeable = state.canPlace(new Piece(shape, new Cell(x, y)));
+                }
+            }
+            assertEquals(!placeable, model.isGameOver(List.of(shape)));
+        }
+    }
+
     @Test
     void testGetScore() {
         Shape lineShape = new Shape(List.of(
@@ -0,0 +1,42 @@
+package blocks;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import blocks.BlockShapes.Piece;
+import blocks.BlockShapes.Shape;
+import blocks.BlockShapes.Cell;
+
+// the models that hand out BoardStates, on top of everything a model has to do
+public abstract class AbstractStandardModelTest extends AbstractModelTest {
+
+    @Override
+    protected abstract StandardModel createModel();
+
+    private StandardModel standard() {
+        return (StandardModel) model;
+    }
+
+    @Test
+    void testSnapshotAndRestore() {
+        Shape lineShape = new Shape(List.of(new Cell(0, 0), new Cell(1, 0), new Cell(2, 0)));
+        model.keepHistory(UndoHistory.defaultLimit);
+        assertEquals(BoardState.empty, standard().snapshot());
+        for (int x = 0; x < ModelInterface.width; x += 3) model.place(new Piece(lineShape, new Cell(x, 0)));
+        model.place(new Piece(lineShape, new Cell(0, 1)));
+        BoardState played = standard().snapshot();
+        assertEquals(stateOf(model), played);
+        assertEquals(10, played.score());
+        assertEquals(3, played.occupiedCount());
+
+        standard().restore(BoardState.empty);
+        assertMatches(BoardState.empty);
+        assertTrue(model.undo(), "A restore can be undone.");
+        assertMatches(played);
+        standard().restore(played.place(new Piece(lineShape, new Cell(0, 2))));
+        assertEquals(6, model.getOccupiedCells().size());
+        assertEquals(played.zobristKey() ^ new BoardState(0b111L << 18, 0L, 0, 0).zobristKey(), model.getZobristKey());
+    }
+}
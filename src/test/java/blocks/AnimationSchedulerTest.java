@@ -0,0 +1,62 @@
+package blocks;
+
+import blocks.BlockShapes.Cell;
+import blocks.BlockShapes.Shape;
+import blocks.BlockShapes.Sprite;
+
+import org.junit.jupiter.api.Test;
+
+import javax.swing.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AnimationSchedulerTest {
+
+    private final Shape single = new Shape(List.of(new Cell(0, 0)));
+
+    @Test
+    void testSpritesAreInterpolatedWithOneRepaintPerFrame() throws Exception {
+        // run on the event dispatch thread so the scheduler's own timer can't fire in between
+        SwingUtilities.invokeAndWait(() -> {
+            AtomicInteger repaints = new AtomicInteger();
+            AnimationScheduler scheduler = new AnimationScheduler(repaints::incrementAndGet);
+            scheduler.setPixelsPerSecond(1);
+            Sprite first = new Sprite(single, 0, 0);
+            Sprite second = new Sprite(single, 100, 100);
+            List<String> arrived = new ArrayList<>();
+            scheduler.animate(first, 100, 0, () -> arrived.add("first"));
+            scheduler.animate(second, 100, 0, () -> arrived.add("second"));
+
+            // 100 pixels at one pixel a second takes 100 seconds
+            scheduler.tick(System.nanoTime() + 50_000_000_000L);
+            assertEquals(50, first.px, 1);
+            assertEquals(0, first.py);
+            assertEquals(50, second.py, 1);
+            assertEquals(1, repaints.get(), "Both sprites should share one repaint.");
+            assertTrue(arrived.isEmpty());
+
+            scheduler.tick(System.nanoTime() + 200_000_000_000L);
+            assertEquals(100, first.px);
+            assertEquals(0, second.py);
+            assertEquals(List.of("first", "second"), arrived);
+            assertFalse(scheduler.isRunning());
+        });
+    }
+
+    @Test
+    void testTurboAppliesMoveDirectly() throws Exception {
+        AnimationScheduler scheduler = new AnimationScheduler(() -> fail("Turbo moves should not be animated."));
+        scheduler.setTurbo(true);
+        Sprite sprite = new Sprite(single, 0, 0);
+        AtomicInteger arrivals = new AtomicInteger();
+        scheduler.animate(sprite, 45, 85, arrivals::incrementAndGet);
+        assertEquals(45, sprite.px);
+        assertEquals(85, sprite.py);
+        assertFalse(scheduler.isRunning());
+        // the arrival callback is queued on the event dispatch thread
+        SwingUtilities.invokeAndWait(() -> assertEquals(1, arrivals.get()));
+    }
+}
@@ -0,0 +1,90 @@
+package blocks;
+
+import blocks.BlockShapes.Cell;
+import blocks.BlockShapes.Piece;
+import blocks.BlockShapes.Shape;
+import blocks.BlockShapes.ShapeSet;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BlockShapesTest {
+
+    @Test
+    void testCellOfSharesGridCells() {
+        assertSame(Cell.of(3, 4), Cell.of(3, 4), "Grid cells should be shared instances.");
+        assertEquals(new Cell(3, 4), Cell.of(3, 4));
+        assertEquals(new Cell(-1, 9), Cell.of(-1, 9), "Off-grid cells should still be created.");
+    }
+
+    @Test
+    void testOffsetsAreDistinct() {
+        Shape shape = new Shape(List.of(new Cell(0, 0), new Cell(1, 0), new Cell(1, 0), new Cell(1, 1)));
+        int[] offsets = shape.offsets();
+        assertEquals(3, offsets.length, "A repeated cell should only appear once in the offsets.");
+        assertEquals(1, Shape.offsetX(offsets[2]));
+        assertEquals(1, Shape.offsetY(offsets[2]));
+    }
+
+    @Test
+    void testOffsetsFollowShapeChanges() {
+        Shape shape = new Shape(List.of(new Cell(0, 0)));
+        assertEquals(1, shape.offsets().length);
+        shape.add(new Cell(0, 1));
+        assertEquals(2, shape.offsets().length, "Offsets should be rebuilt after the shape changes.");
+    }
+
+    @Test
+    void testCatalogueShapesAreCompiled() {
+        List<Shape> catalogue = ShapeSet.shared();
+        List<Shape> raw = new ShapeSet().getShapes();
+        assertEquals(raw.size(), catalogue.size());
+        for (int id = 0; id < catalogue.size(); id++) {
+            Shape shape = catalogue.get(id);
+            assertEquals(id, shape.id(), "A catalogue shape's id should be its index.");
+            assertEquals(raw.get(id), shape, "Catalogue shape " + id + " should match the ShapeSet.");
+            assertEquals(0, shape.minX());
+            assertEquals(0, shape.minY());
+            assertEquals(shape.size(), shape.stream().distinct().count(), "Shape " + id + " should have no repeated cells.");
+            assertEquals(shape.stream().mapToInt(Cell::x).max().orElseThrow() + 1, shape.width());
+            assertEquals(shape.stream().mapToInt(Cell::y).max().orElseThrow() + 1, shape.height());
+        }
+        assertThrows(UnsupportedOperationException.class, () -> catalogue.get(0).add(new Cell(5, 5)));
+        assertThrows(UnsupportedOperationException.class, () -> catalogue.get(0).removeIf(cell -> true));
+        assertThrows(UnsupportedOperationException.class, () -> catalogue.get(0).subList(0, 1).clear());
+        assertEquals(-1, new Shape(catalogue.get(0)).id(), "A copy isn't a catalogue shape.");
+    }
+
+    @Test
+    void testBoundingBoxMatchesCellByCellBounds() {
+        List<Shape> shapes = new ArrayList<>(ShapeSet.shared());
+        // shapes that don't start at (0, 0) are still checked against their own cells
+        shapes.add(new Shape(List.of(new Cell(1, 2), new Cell(2, 2), new Cell(2, 3))));
+        shapes.add(new Shape(List.of(new Cell(-1, 0), new Cell(0, -1))));
+        for (Shape shape : shapes) {
+            int anchors = 0;
+            for (int x = -5; x < 14; x++) {
+                for (int y = -5; y < 14; y++) {
+                    boolean inBounds = true;
+                    for (Cell cell : shape) inBounds &= ModelInterface.inBounds(x + cell.x(), y + cell.y());
+                    assertEquals(inBounds, shape.fitsAt(x, y, 9, 9), shape + " at " + x + ", " + y);
+                    boolean inWindow = x >= shape.firstAnchorX() && x <= shape.lastAnchorX(9)
+                            && y >= shape.firstAnchorY() && y <= shape.lastAnchorY(9);
+                    assertEquals(inBounds, inWindow, shape + " at " + x + ", " + y);
+                    if (inBounds) anchors++;
+                }
+            }
+            assertEquals((9 - shape.width() + 1) * (9 - shape.height() + 1), anchors);
+        }
+    }
+
+    @Test
+    void testPieceCellsUseSharedCells() {
+        Piece piece = new Piece(new Shape(List.of(new Cell(0, 0), new Cell(1, 0))), new Cell(2, 3));
+        assertSame(Cell.of(3, 3), piece.cells().get(1));
+    }
+}
@@ -0,0 +1,49 @@
+package blocks;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameEventsTest {
+
+    private static long count(List<RecordedEvent> events, String name) {
+        return events.stream().filter(event -> event.getEventType().getName().equals(name)).count();
+    }
+
+    @Test
+    void testSelfPlayGameIsRecorded() throws Exception {
+        Path file = Files.createTempFile("blocks", ".jfr");
+        SelfPlay.GameResult result;
+        try (Recording recording = new Recording(Configuration.create(Path.of("src/main/resources/blocks.jfc")))) {
+            recording.start();
+            result = SelfPlay.forModel("set").playGame(11L);
+            recording.stop();
+            recording.dump(file);
+        }
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+        Files.delete(file);
+
+        assertEquals(result.moves(), count(events, "blocks.Placement"), "Every move should be one placement event.");
+        assertTrue(count(events, "blocks.Decision") >= result.moves(), "Every move needs a decision.");
+        assertEquals(1, count(events, "blocks.GameOver"));
+        RecordedEvent gameOver = events.stream().filter(event -> event.getEventType().getName().equals("blocks.GameOver")).findFirst().orElseThrow();
+        assertEquals(result.score(), gameOver.getInt("score"));
+        assertEquals("ModelSet", gameOver.getString("model"));
+
+        // the points come from the pops, n regions at once scoring n * n * 10
+        int points = events.stream().filter(event -> event.getEventType().getName().equals("blocks.Pops"))
+                .mapToInt(event -> {
+                    int n = event.getInt("rows") + event.getInt("columns") + event.getInt("subSquares");
+                    return n * n * 10;
+                }).sum();
+        assertEquals(result.score(), points);
+    }
+}
@@ -0,0 +1,60 @@
+package blocks;
+
+import blocks.SelfPlay.GameResult;
+
+import org.junit.jupiter.api.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.TabularData;
+import java.lang.management.ManagementFactory;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameMetricsTest {
+
+    @Test
+    void testInstrumentedGameMatchesPlainGame() {
+        SelfPlay plain = SelfPlay.forModel("bitboard");
+        SelfPlay instrumented = SelfPlay.forModel("bitboard");
+        instrumented.metrics = new GameMetrics();
+        GameResult result = instrumented.playGame(5L);
+        assertEquals(plain.playGame(5L), result, "Instrumentation should not change how the game plays.");
+
+        GameMetrics metrics = instrumented.metrics;
+        assertEquals(1, metrics.getGamesPlayed());
+        assertEquals(result.score(), metrics.getAverageScore());
+        assertEquals(result.moves(), metrics.getMoves());
+        assertEquals(result.moves(), metrics.getOperations().get("place").getCalls());
+        assertTrue(metrics.getOperations().get("decide").getCalls() >= result.moves(), "Every move needs a decision.");
+        assertEquals(result.maxStreak(), metrics.getMaxStreakLength());
+        assertTrue(metrics.getPopsPerMove() > 0, "A whole game should pop something.");
+    }
+
+    @Test
+    void testPercentilesComeFromTheHistogram() {
+        OperationStats stats = new OperationStats();
+        for (int i = 0; i < 99; i++) stats.record(100, 0);
+        stats.record(5000, 64);
+        OperationStats.Snapshot snapshot = stats.snapshot();
+        assertEquals(100, snapshot.getCalls());
+        assertEquals(128, snapshot.getP50Nanos(), "100ns falls in the bucket below 128ns.");
+        assertEquals(128, snapshot.getP99Nanos());
+        assertEquals(149.0, snapshot.getMeanNanos(), 1e-9);
+        assertEquals(0.64, snapshot.getBytesPerCall(), 1e-9);
+        stats.reset();
+        assertEquals(0, stats.snapshot().getCalls());
+    }
+
+    @Test
+    void testSharedMetricsAreVisibleOverJmx() throws Exception {
+        GameMetrics metrics = GameMetrics.shared();
+        metrics.canPlace.record(10, 0);
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(GameMetrics.objectName);
+        assertTrue(server.isRegistered(name));
+        TabularData operations = (TabularData) server.getAttribute(name, "Operations");
+        assertEquals(6, operations.size());
+        assertNotNull(server.getAttribute(name, "PopsPerMove"));
+    }
+}
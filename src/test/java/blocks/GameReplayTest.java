@@ -0,0 +1,107 @@
+package blocks;
+
+import blocks.GameReplay.FileResult;
+import blocks.GameReplay.Report;
+import blocks.SelfPlay.GameResult;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameReplayTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void testRecordedGamesReplayOnEveryModel() throws Exception {
+        SelfPlay.Report played;
+        try (GameArchive archive = new GameArchive(dir, "test", 2)) {
+            played = SelfPlay.forModel("bitboard").playGames(20, 42L, 2, archive);
+        }
+        List<Path> files = GameReplay.archiveFiles(dir);
+        assertEquals(2, files.size());
+        for (String model : List.of("set", "2dArray", "bitboard")) {
+            Report report = GameReplay.forModel(model).replayAll(files, 2);
+            assertEquals(20, report.games());
+            assertEquals(played.totalMoves(), report.moves());
+            assertTrue(report.mismatches().isEmpty(), model + ": " + report.mismatches());
+        }
+    }
+
+    @Test
+    void testRecordIsCompact() {
+        byte[][] record = new byte[1][];
+        GameResult result = SelfPlay.forModel("bitboard").playGame(5L, bytes -> record[0] = bytes);
+        // four bytes a move, five a palette of three, plus header, checkpoints and the end record
+        int palettes = (result.moves() + 2) / 3 + 1;
+        assertTrue(record[0].length <= 16 + 11 + result.moves() * 4 + palettes * 5 + result.moves() * 7);
+        assertTrue(record[0].length >= 16 + 11 + result.moves() * 4);
+    }
+
+    @Test
+    void testLargeBoardGamesReplayOnWords() throws Exception {
+        SelfPlay.Report played;
+        try (GameArchive archive = new GameArchive(dir, "words16", 1)) {
+            played = SelfPlay.forModel("words16").playGames(5, 7L, 1, archive);
+        }
+        List<Path> files = GameReplay.archiveFiles(dir);
+        Report report = GameReplay.forModel("words").replayAll(files, 1);
+        assertEquals(played.totalMoves(), report.moves());
+        assertTrue(report.mismatches().isEmpty(), report.mismatches().toString());
+
+        Report onBitboard = GameReplay.forModel("bitboard").replayAll(files, 1);
+        assertEquals(5, onBitboard.games(), "Every game should still be read through.");
+        assertEquals(5, onBitboard.mismatches().size());
+        assertTrue(onBitboard.mismatches().get(0).message().contains("16x16"), onBitboard.mismatches().toString());
+    }
+
+    @Test
+    void testVersionOneRecordsReplayAsNineByNine() throws Exception {
+        byte[][] record = new byte[1][];
+        SelfPlay.forModel("bitboard").playGame(9L, bytes -> record[0] = bytes);
+        // a version 1 header is the same without the three bytes of board size after the seed
+        byte[] bytes = new byte[record[0].length - 3];
+        System.arraycopy(record[0], 0, bytes, 0, 13);
+        System.arraycopy(record[0], 16, bytes, 13, bytes.length - 13);
+        bytes[4] = 1;
+        Path file = Files.write(dir.resolve("v1" + GameArchive.extension), bytes);
+        FileResult result = GameReplay.forModel("set").replayFile(file);
+        assertEquals(1, result.games());
+        assertTrue(result.mismatches().isEmpty(), result.mismatches().toString());
+    }
+
+    @Test
+    void testWrongScoreIsReported() throws Exception {
+        byte[][] record = new byte[1][];
+        SelfPlay.forModel("bitboard").playGame(9L, bytes -> record[0] = bytes);
+        // the end record finishes with the score and streak, bump the last byte of the score
+        byte[] bytes = record[0];
+        bytes[bytes.length - 3]++;
+        Path file = Files.write(dir.resolve("bad" + GameArchive.extension), bytes);
+        FileResult result = GameReplay.forModel("set").replayFile(file);
+        assertEquals(1, result.games());
+        assertEquals(1, result.mismatches().size());
+        assertTrue(result.mismatches().get(0).message().contains("recorded score"));
+    }
+
+    @Test
+    void testTruncatedFileIsReported() throws Exception {
+        byte[][] record = new byte[1][];
+        SelfPlay.forModel("bitboard").playGame(9L, bytes -> record[0] = bytes);
+        byte[] twoGames = new byte[record[0].length * 2 - 5];
+        System.arraycopy(record[0], 0, twoGames, 0, record[0].length);
+        System.arraycopy(record[0], 0, twoGames, record[0].length, record[0].length - 5);
+        Path file = Files.write(dir.resolve("truncated" + GameArchive.extension), twoGames);
+        FileResult result = GameReplay.forModel("bitboard").replayFile(file);
+        assertEquals(1, result.games(), "The complete first game should still replay.");
+        assertEquals(1, result.mismatches().size());
+        assertTrue(result.mismatches().get(0).message().startsWith("truncated"), Arrays.toString(result.mismatches().toArray()));
+    }
+}
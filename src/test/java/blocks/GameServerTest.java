@@ -0,0 +1,105 @@
+package blocks;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameServerTest {
+    private GameServer server;
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = new GameServer(0, "bitboard");
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.close();
+    }
+
+    private HttpResponse<String> send(String method, String path) throws Exception {
+        URI uri = URI.create("http://localhost:" + server.getPort() + path);
+        return client.send(HttpRequest.newBuilder(uri).method(method, HttpRequest.BodyPublishers.noBody()).build(),
+                HttpResponse.BodyHandlers.ofString());
+    }
+
+    @Test
+    void testPlayAGameOverHttp() throws Exception {
+        HttpResponse<String> created = send("POST", "/games?seed=4");
+        assertEquals(201, created.statusCode());
+        String game = "/games/" + created.body().trim();
+
+        String palette = send("GET", game + "/palette").body();
+        assertEquals(3, palette.lines().count(), "A new game has three shapes to place.");
+        String first = palette.lines().findFirst().orElseThrow().split(" ")[0];
+
+        // every shape fits in the corner of an empty board, but not twice
+        HttpResponse<String> placed = send("POST", game + "/place?piece=" + first + "&x=0&y=0");
+        assertEquals(200, placed.statusCode(), placed.body());
+        assertTrue(placed.body().contains("placed 0,0"));
+        assertEquals(409, send("POST", game + "/place?piece=" + first + "&x=0&y=0").statusCode());
+        assertEquals(2, send("GET", game + "/palette").body().lines().count());
+
+        assertEquals(200, send("POST", game + "/bot").statusCode());
+        String board = send("GET", game + "/board").body();
+        assertTrue(board.startsWith("score "), board);
+        assertTrue(board.contains("moves 2"), board);
+        assertEquals('#', board.lines().skip(4).findFirst().orElseThrow().charAt(0), "The corner should be occupied.");
+
+        assertEquals(400, send("POST", game + "/place?piece=x").statusCode());
+        assertEquals(200, send("DELETE", game).statusCode());
+        assertEquals(404, send("GET", game + "/board").statusCode());
+    }
+
+    @Test
+    void testBotPlaysToTheEnd() {
+        GameSession session = server.createSession("set", 9L);
+        GameSession.Move move;
+        int moves = 0;
+        do {
+            move = session.botMove();
+            if (move != null) moves++;
+        } while (move != null && !move.gameOver());
+        assertTrue(session.isGameOver());
+        assertNull(session.botMove(), "A finished game has no more moves.");
+        assertEquals(SelfPlay.forModel("set").playGame(9L).moves(), moves, "A session's bot plays the same game as self-play.");
+    }
+
+    @Test
+    void testIdleAndFinishedSessionsExpire() {
+        GameSession playing = server.createSession("bitboard", 1L);
+        GameSession finished = server.createSession("bitboard", 2L);
+        while (finished.botMove() != null) {
+            // play it out
+        }
+        assertTrue(finished.isGameOver());
+        long now = System.nanoTime();
+        playing.touch(now);
+        finished.touch(now);
+
+        assertEquals(0, server.expireSessions(now), "Nothing has been idle yet.");
+        assertEquals(1, server.expireSessions(now + GameServer.defaultGameOverTimeoutNanos + 1),
+                "A finished game should go after the shorter timeout.");
+        assertFalse(server.sessions.containsKey(finished.id));
+        assertTrue(server.sessions.containsKey(playing.id), "A game still in play should be kept.");
+        assertEquals(1, server.expireSessions(now + GameServer.defaultIdleTimeoutNanos + 1));
+        assertTrue(server.sessions.isEmpty());
+    }
+
+    @Test
+    void testLoadGeneratorReportsLatencies() throws Exception {
+        LoadGenerator.Report report = new LoadGenerator(URI.create("http://localhost:" + server.getPort()))
+                .run(20, 2, "bitboard", 5);
+        assertEquals(20, report.sessions());
+        assertEquals(100, report.moves(), "Five moves in each of twenty games.");
+        assertTrue(report.percentileNanos(50) <= report.percentileNanos(99));
+    }
+}
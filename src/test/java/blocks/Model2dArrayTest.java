@@ -1,8 +1,8 @@
 package blocks;
 
-public class Model2dArrayTest extends AbstractModelTest {
+public class Model2dArrayTest extends AbstractStandardModelTest {
     @Override
-    protected ModelInterface createModel() {
+    protected StandardModel createModel() {
         return new Model2dArray();
     }
 }
\ No newline at end of file
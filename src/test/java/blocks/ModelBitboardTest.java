@@ -0,0 +1,8 @@
+package blocks;
+
+public class ModelBitboardTest extends AbstractStandardModelTest {
+    @Override
+    protected StandardModel createModel() {
+        return new ModelBitboard();
+    }
+}
\ No newline at end of file
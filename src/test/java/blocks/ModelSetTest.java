@@ -1,8 +1,8 @@
 package blocks;
 
-public class ModelSetTest extends AbstractModelTest {
+public class ModelSetTest extends AbstractStandardModelTest {
     @Override
-    protected ModelInterface createModel() {
+    protected StandardModel createModel() {
         return new ModelSet();
     }
 }
\ No newline at end of file
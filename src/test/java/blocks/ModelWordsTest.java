@@ -0,0 +1,102 @@
+package blocks;
+
+import blocks.BlockShapes.Cell;
+import blocks.BlockShapes.Piece;
+import blocks.BlockShapes.Shape;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ModelWordsTest extends AbstractModelTest {
+    @Override
+    protected ModelInterface createModel() {
+        return new ModelWords();
+    }
+
+    private final Shape single = new Shape(List.of(new Cell(0, 0)));
+
+    @Test
+    void testGeometrySubSizes() {
+        assertEquals(3, BoardGeometry.of(9).subSize());
+        assertEquals(4, BoardGeometry.of(12).subSize());
+        assertEquals(4, BoardGeometry.of(16).subSize());
+        assertEquals(5, BoardGeometry.of(25).subSize());
+        assertSame(BoardGeometry.standard, BoardGeometry.of(9));
+        assertEquals(3 * 25, BoardGeometry.of(25).regions().size());
+        assertThrows(IllegalArgumentException.class, () -> BoardGeometry.of(10, 10, 3));
+    }
+
+    @Test
+    void testUndoRedoOnLargeBoard() {
+        ModelWords model = new ModelWords(BoardGeometry.of(16));
+        model.keepHistory(UndoHistory.defaultLimit);
+        Shape line = new Shape(List.of(new Cell(0, 0), new Cell(1, 0), new Cell(2, 0), new Cell(3, 0)));
+        // four lines fill row 15, which pops on the last one
+        for (int x = 0; x < 16; x += 4) model.place(new Piece(line, new Cell(x, 15)));
+        model.place(new Piece(single, new Cell(7, 7)));
+        assertEquals(10, model.getScore());
+        assertEquals(Set.of(new Cell(7, 7)), model.getOccupiedCells());
+        long key = model.getZobristKey();
+
+        assertTrue(model.undo());
+        assertTrue(model.undo());
+        assertEquals(0, model.getScore());
+        assertEquals(12, model.getOccupiedCells().size(), "The undone pop should bring the row back, less the last line.");
+        assertFalse(model.canPlace(new Piece(single, new Cell(0, 15))));
+        assertTrue(model.canPlace(new Piece(line, new Cell(12, 15))));
+        assertTrue(model.redo());
+        assertTrue(model.redo());
+        assertFalse(model.redo());
+        assertEquals(10, model.getScore());
+        assertEquals(key, model.getZobristKey());
+        for (int i = 0; i < 5; i++) assertTrue(model.undo());
+        assertFalse(model.undo());
+        assertTrue(model.getOccupiedCells().isEmpty());
+    }
+
+    @Test
+    void testRowPopsOnLargeBoard() {
+        ModelWords model = new ModelWords(BoardGeometry.of(25));
+        assertFalse(model.canPlace(new Piece(single, new Cell(25, 0))));
+        assertTrue(model.canPlace(new Piece(single, new Cell(24, 24))));
+        for (int x = 0; x < 24; x++) model.place(new Piece(single, new Cell(x, 24)));
+        Piece last = new Piece(single, new Cell(24, 24));
+        assertEquals(List.of(new RegionHelper(25, 25, 5).rowShape(24)), model.getPoppableRegions(last));
+        assertEquals(25, model.getPoppableCells(last).cardinality());
+        model.place(last);
+        assertTrue(model.getOccupiedCells().isEmpty());
+        assertEquals(10, model.getScore());
+        assertEquals(0L, model.getZobristKey());
+    }
+
+    @Test
+    void testSubSquareAndColumnPopTogether() {
+        ModelWords model = new ModelWords(BoardGeometry.of(16));
+        // fill the top left 4x4 sub-square and the first column, apart from the corner
+        for (int x = 0; x < 4; x++) {
+            for (int y = 0; y < 4; y++) {
+                if (x + y > 0) model.place(new Piece(single, new Cell(x, y)));
+            }
+        }
+        for (int y = 4; y < 16; y++) model.place(new Piece(single, new Cell(0, y)));
+        Piece corner = new Piece(single, new Cell(0, 0));
+        assertEquals(2, model.getPoppableRegions(corner).size());
+        // the column shares four cells with the sub-square
+        assertEquals(16 + 16 - 4, model.getPoppableCells(corner).cardinality());
+        model.place(corner);
+        assertEquals(40, model.getScore());
+        assertEquals(1, model.getStreak());
+        assertTrue(model.getOccupiedCells().isEmpty());
+    }
+
+    @Test
+    void testPlaysSameGameAsBitboardOnStandardBoard() {
+        // same anchor order and the same random choices, so the games should be identical
+        assertEquals(SelfPlay.forModel("bitboard").playGame(11L), SelfPlay.forModel("words").playGame(11L));
+        assertTrue(SelfPlay.forModel("words16").playGame(11L).moves() > 0);
+    }
+}
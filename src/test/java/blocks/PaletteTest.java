@@ -1,6 +1,8 @@
 package blocks;
 
+import blocks.BlockShapes.Cell;
 import blocks.BlockShapes.Shape;
+import blocks.BlockShapes.ShapeSet;
 import blocks.BlockShapes.Sprite;
 import blocks.BlockShapes.SpriteState;
 import blocks.BlockShapes.PixelLoc;
@@ -63,6 +65,22 @@ class PaletteTest {
         assertEquals(firstSprite, foundSprite, "Found sprite should match the expected sprite.");
     }
 
+    @Test
+    void testGetSpriteInAGapOfTheShape() {
+        palette.replenish();
+        int cellSize = 20;
+        // an L whose top left corner is empty
+        Shape corner = ShapeSet.shared().stream().filter(shape -> !shape.contains(new Cell(0, 0))).findFirst().orElseThrow();
+        palette.getSprites().set(0, new Sprite(corner, 0, 0));
+        palette.doLayout(0, 0, cellSize);
+
+        Sprite sprite = palette.getSprites().get(0);
+        assertSame(sprite, palette.getSprite(new PixelLoc(sprite.px + 5, sprite.py + 5), cellSize),
+                "A point in the shape's bounding box should pick the sprite up.");
+        assertNull(palette.getSprite(new PixelLoc(sprite.px + corner.width() * cellSize + 5, sprite.py + 5), cellSize),
+                "A point right of the bounding box should not.");
+    }
+
     @Test
     void testGetSpriteAtInvalidLocationReturnsNull() {
         palette.replenish();
@@ -96,7 +114,7 @@ class PaletteTest {
 
     @Test
     void testInitialShapesAndSprites() {
-        ArrayList<Shape> shapes = palette.getShapes();
+        List<Shape> shapes = palette.getShapes();
         assertFalse(shapes.isEmpty(), "Palette should have initial shapes available.");
         assertEquals(3, palette.getSprites().size(), "Palette should initially contain 3 sprites.");
     }
@@ -0,0 +1,57 @@
+package blocks;
+
+import blocks.BlockShapes.Cell;
+import blocks.BlockShapes.Piece;
+import blocks.BlockShapes.Shape;
+import blocks.BlockShapes.ShapeSet;
+import blocks.PlacementKernel.Batch;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PlacementKernelTest {
+
+    // plays random moves, checking the kernel against the model's own answer for every shape
+    static void checkAgainstModel(PlacementKernel kernel) {
+        ModelBitboard model = new ModelBitboard();
+        Random random = new Random(3);
+        List<Shape> shapes = new ShapeSet().getShapes();
+        for (int move = 0; move < 200; move++) {
+            Piece next = new Piece(shapes.get(random.nextInt(shapes.size())),
+                    new Cell(random.nextInt(ModelInterface.width), random.nextInt(ModelInterface.height)));
+            if (model.canPlace(next)) model.place(next);
+            BoardState state = model.snapshot();
+            for (Shape shape : shapes) {
+                Batch batch = PlacementKernel.batch(shape);
+                int[] popCounts = new int[batch.size()];
+                kernel.evaluate(state.lo(), state.hi(), batch, popCounts);
+                int[] expected = model.getAnchorPopCounts(shape);
+                for (int i = 0; i < batch.size(); i++) {
+                    Cell anchor = batch.anchors()[i];
+                    assertEquals(expected[anchor.y() * ModelInterface.width + anchor.x()], popCounts[i],
+                            kernel.name() + ", move " + move + ", " + shape + " at " + anchor);
+                }
+            }
+        }
+    }
+
+    @Test
+    void testScalarKernelMatchesModel() {
+        checkAgainstModel(PlacementKernel.scalar());
+    }
+
+    @Test
+    void testScalarKernelIsTheDefault() {
+        assertSame(PlacementKernel.scalar(), PlacementKernel.best());
+    }
+
+    @Test
+    void testNoVectorKernelWithoutTheModule() {
+        // the default build doesn't add jdk.incubator.vector, see the vector profile
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) assertNull(PlacementKernel.vector());
+    }
+}
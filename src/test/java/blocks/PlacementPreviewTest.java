@@ -0,0 +1,53 @@
+package blocks;
+
+import blocks.BlockShapes.Cell;
+import blocks.BlockShapes.Piece;
+import blocks.BlockShapes.Shape;
+import blocks.PlacementPreview.Preview;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PlacementPreviewTest {
+
+    private final Shape lineShape = new Shape(List.of(new Cell(0, 0), new Cell(1, 0), new Cell(2, 0)));
+
+    @Test
+    void testPreviewShowsGhostAndPoppedCells() {
+        ModelInterface model = new ModelBitboard();
+        model.place(new Piece(lineShape, new Cell(0, 0)));
+        model.place(new Piece(lineShape, new Cell(3, 0)));
+        PlacementPreview placementPreview = new PlacementPreview(model);
+
+        Preview preview = placementPreview.get(new Piece(lineShape, new Cell(6, 0)));
+        assertTrue(preview.legal());
+        assertEquals(List.of(new Cell(6, 0), new Cell(7, 0), new Cell(8, 0)), preview.ghostCells());
+        assertEquals(ModelInterface.width, preview.poppedCells().cardinality(), "Only the top row should pop.");
+        for (int x = 0; x < ModelInterface.width; x++) assertTrue(preview.pops(x, 0));
+
+        Preview blocked = placementPreview.get(new Piece(lineShape, new Cell(1, 0)));
+        assertFalse(blocked.legal());
+        assertTrue(blocked.ghostCells().isEmpty());
+    }
+
+    @Test
+    void testPreviewIsReusedUntilAnchorOrBoardChanges() {
+        ModelInterface model = new ModelSet();
+        PlacementPreview placementPreview = new PlacementPreview(model);
+        Preview first = placementPreview.get(new Piece(lineShape, new Cell(0, 0)));
+        assertSame(first, placementPreview.get(new Piece(lineShape, new Cell(0, 0))));
+        assertSame(first, placementPreview.get(new Piece(new Shape(lineShape), new Cell(0, 0))), "An equal shape should hit too.");
+        assertEquals(2, placementPreview.getHits());
+
+        placementPreview.get(new Piece(lineShape, new Cell(1, 1)));
+        Preview again = placementPreview.get(new Piece(lineShape, new Cell(0, 0)));
+        assertNotSame(first, again);
+
+        model.place(new Piece(lineShape, new Cell(0, 0)));
+        assertFalse(placementPreview.get(new Piece(lineShape, new Cell(0, 0))).legal(), "A board change should invalidate the preview.");
+        assertEquals(4, placementPreview.getMisses());
+    }
+}
@@ -0,0 +1,47 @@
+package blocks;
+
+import blocks.BlockShapes.Cell;
+import blocks.BlockShapes.Piece;
+import blocks.BlockShapes.Shape;
+import blocks.BlockShapes.ShapeSet;
+import blocks.PlacementTable.Placement;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PlacementTableTest {
+
+    private final PlacementTable table = PlacementTable.getShared();
+
+    @Test
+    void testPlacementsMatchCanPlaceOnEmptyBoard() {
+        ModelSet model = new ModelSet();
+        for (Shape shape : new ShapeSet().getShapes()) {
+            int expected = 0;
+            for (Cell cell : model.locations) {
+                if (model.canPlace(new Piece(shape, cell))) expected++;
+            }
+            assertEquals(expected, table.placements(shape).length, "Placement count should match canPlace for " + shape);
+        }
+    }
+
+    @Test
+    void testPlacementCellsMatchPiece() {
+        Shape lShape = new Shape(List.of(new Cell(0, 0), new Cell(1, 0), new Cell(0, 1)));
+        for (Placement placement : table.placements(lShape)) {
+            assertEquals(new Piece(lShape, placement.anchor()).cells(), List.of(placement.cells()));
+        }
+    }
+
+    @Test
+    void testShapeOutsideShapeSetIsCompiled() {
+        Shape single = new Shape(List.of(new Cell(0, 0)));
+        assertEquals(ModelInterface.width * ModelInterface.height, table.placements(single).length,
+                "A single cell shape should fit at every anchor.");
+        assertSame(table.placements(single), table.placements(new Shape(List.of(new Cell(0, 0)))),
+                "Equal shapes should share compiled placements.");
+    }
+}
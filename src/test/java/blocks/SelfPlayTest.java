@@ -0,0 +1,46 @@
+package blocks;
+
+import blocks.SelfPlay.GameResult;
+import blocks.SelfPlay.Report;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SelfPlayTest {
+
+    @Test
+    void testGameIsReproducibleFromSeed() {
+        SelfPlay selfPlay = SelfPlay.forModel("bitboard");
+        assertEquals(selfPlay.playGame(7L), selfPlay.playGame(7L), "The same seed should replay the same game.");
+    }
+
+    @Test
+    void testParallelRunMatchesSequentialRun() throws Exception {
+        SelfPlay selfPlay = SelfPlay.forModel("set");
+        Report sequential = selfPlay.playGames(20, 42L, 1);
+        Report parallel = selfPlay.playGames(20, 42L, 4);
+        assertEquals(sequential.games(), parallel.games(), "Results should not depend on the number of threads.");
+    }
+
+    @Test
+    void testLookaheadRunIsReproducible() throws Exception {
+        SelfPlay selfPlay = SelfPlay.forModel("lookahead");
+        Report sequential = selfPlay.playGames(6, 42L, 1);
+        Report parallel = selfPlay.playGames(6, 42L, 3);
+        assertEquals(sequential.games(), parallel.games(), "Lookahead searches should stop on nodes, not the clock.");
+        // this thread's table is used by another game first, and cleared for this one
+        selfPlay.playGame(sequential.games().get(1).seed());
+        assertEquals(sequential.games().get(0), selfPlay.playGame(sequential.games().get(0).seed()));
+    }
+
+    @Test
+    void testModelsAgreeOnTheSameSeed() {
+        GameResult set = SelfPlay.forModel("set").playGame(3L);
+        GameResult array = SelfPlay.forModel("2dArray").playGame(3L);
+        GameResult bitboard = SelfPlay.forModel("bitboard").playGame(3L);
+        assertTrue(set.moves() > 0, "A game should make at least one move.");
+        assertEquals(array, bitboard, "Models with the same anchor order should play identical games.");
+        assertEquals(set.seed(), bitboard.seed());
+    }
+}
@@ -0,0 +1,94 @@
+package blocks;
+
+import blocks.BlockShapes.Cell;
+import blocks.BlockShapes.Piece;
+import blocks.BlockShapes.Shape;
+import blocks.BlockShapes.ShapeSet;
+import blocks.StrategyLookahead.Plan;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StrategyLookaheadTest {
+
+    private final Shape lineShape = new Shape(List.of(new Cell(0, 0), new Cell(1, 0), new Cell(2, 0)));
+    private StandardModel model;
+    private List<Shape> palette;
+    private StrategyLookahead strategy;
+
+    @BeforeEach
+    void setUp() {
+        model = new ModelBitboard();
+        palette = new ArrayList<>();
+        strategy = new StrategyLookahead(model, () -> palette);
+    }
+
+    @Test
+    void testCompletesRowWhenPossible() {
+        model.place(new Piece(lineShape, new Cell(0, 0)));
+        model.place(new Piece(lineShape, new Cell(3, 0)));
+        palette.add(lineShape);
+        assertEquals(new Cell(6, 0), strategy.getValidStartingPoint(lineShape), "The line should finish the top row.");
+    }
+
+    @Test
+    void testBestPlanPlacesEveryPiece() {
+        List<Shape> shapes = new ShapeSet().getShapes();
+        Plan plan = strategy.bestPlan(List.of(shapes.get(12), shapes.get(14), shapes.get(16)));
+        assertEquals(3, plan.moves().size(), "Every palette piece fits on an empty board.");
+        for (Piece piece : plan.moves()) {
+            assertTrue(model.canPlace(piece));
+            model.place(piece);
+        }
+    }
+
+    @Test
+    void testAnotherSearchStartingDoesNotCutThisOneOff() {
+        List<Shape> shapes = new ShapeSet().getShapes();
+        List<Shape> pieces = List.of(shapes.get(12), shapes.get(14), shapes.get(16));
+        StrategyLookahead alone = new StrategyLookahead(model, () -> palette, 10_000_000_000L);
+        Plan expected = alone.bestPlan(pieces);
+
+        // another search sharing the table takes a new generation part way through this one
+        TranspositionTable shared = new TranspositionTable(17) {
+            @Override
+            public long probe(long key) {
+                if (getProbes() == 50) newGeneration();
+                return super.probe(key);
+            }
+        };
+        StrategyLookahead sharing = new StrategyLookahead(model, () -> palette, 10_000_000_000L, shared);
+        assertEquals(expected, sharing.bestPlan(pieces));
+        assertEquals(alone.getNodes(), sharing.getNodes(), "The search should still prune against its own entries.");
+    }
+
+    @Test
+    void testNodeBudgetStopsTheSearch() {
+        List<Shape> shapes = new ShapeSet().getShapes();
+        List<Shape> pieces = List.of(shapes.get(12), shapes.get(14), shapes.get(16));
+        StrategyLookahead full = StrategyLookahead.withNodeBudget(model, () -> palette, Long.MAX_VALUE, new TranspositionTable(17));
+        full.bestPlan(pieces);
+        StrategyLookahead limited = StrategyLookahead.withNodeBudget(model, () -> palette, 1024, new TranspositionTable(17));
+        Plan plan = limited.bestPlan(pieces);
+        assertEquals(3, plan.moves().size(), "A complete plan is found before the budget counts.");
+        assertTrue(limited.getNodes() < full.getNodes(), limited.getNodes() + " of " + full.getNodes());
+        assertEquals(plan, StrategyLookahead.withNodeBudget(model, () -> palette, 1024, new TranspositionTable(17)).bestPlan(pieces),
+                "The same budget should find the same plan.");
+    }
+
+    @Test
+    void testNoStartingPointOnFullBoard() {
+        for (int x = 0; x < ModelInterface.width; x++) {
+            for (int y = 0; y < ModelInterface.height; y++) {
+                if ((x + y) % 2 == 0) model.place(new Piece(new Shape(List.of(new Cell(0, 0))), new Cell(x, y)));
+            }
+        }
+        palette.add(lineShape);
+        assertNull(strategy.getValidStartingPoint(lineShape));
+    }
+}
@@ -0,0 +1,61 @@
+package blocks;
+
+import blocks.BlockShapes.Cell;
+import blocks.BlockShapes.Piece;
+import blocks.BlockShapes.Shape;
+import blocks.StrategyMcts.Budget;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StrategyMctsTest {
+
+    private final Shape lineShape = new Shape(List.of(new Cell(0, 0), new Cell(1, 0), new Cell(2, 0)));
+    private StandardModel model;
+    private List<Shape> palette;
+
+    @BeforeEach
+    void setUp() {
+        model = new ModelBitboard();
+        palette = new ArrayList<>();
+    }
+
+    @Test
+    void testPlayoutBudgetIsReproducible() {
+        model.place(new Piece(lineShape, new Cell(0, 0)));
+        model.place(new Piece(lineShape, new Cell(3, 0)));
+        palette.add(lineShape);
+        Cell first = new StrategyMcts(model, () -> palette, Budget.playouts(2000), 1, 1L).getValidStartingPoint(lineShape);
+        Cell second = new StrategyMcts(model, () -> palette, Budget.playouts(2000), 1, 1L).getValidStartingPoint(lineShape);
+        assertEquals(first, second, "The same seed and playout budget should make the same choice.");
+        assertTrue(model.canPlace(new Piece(lineShape, first)));
+    }
+
+    @Test
+    void testParallelSearchUsesWholeBudget() {
+        palette.add(lineShape);
+        palette.add(lineShape);
+        StrategyMcts strategy = new StrategyMcts(model, () -> palette, Budget.playouts(1000), 2, 1L);
+        Cell cell = strategy.getValidStartingPoint(lineShape);
+        strategy.shutdown();
+        assertTrue(model.canPlace(new Piece(lineShape, cell)));
+        assertEquals(1000, strategy.getLastPlayouts());
+    }
+
+    @Test
+    void testNoStartingPointOnFullBoard() {
+        for (int x = 0; x < ModelInterface.width; x++) {
+            for (int y = 0; y < ModelInterface.height; y++) {
+                if ((x + y) % 2 == 0) model.place(new Piece(new Shape(List.of(new Cell(0, 0))), new Cell(x, y)));
+            }
+        }
+        palette.add(lineShape);
+        StrategyMcts strategy = new StrategyMcts(model, () -> palette, Budget.time(10), 1, 1L);
+        assertNull(strategy.getValidStartingPoint(lineShape));
+    }
+}
@@ -0,0 +1,117 @@
+package blocks;
+
+import blocks.BlockShapes.Cell;
+import blocks.BlockShapes.Piece;
+import blocks.BlockShapes.Shape;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import javax.swing.*;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StrategyWorkerTest {
+
+    private final Shape lineShape = new Shape(List.of(new Cell(0, 0), new Cell(1, 0), new Cell(2, 0)));
+    private final ModelBitboard model = new ModelBitboard();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final CountDownLatch started = new CountDownLatch(1);
+    private final CountDownLatch interrupted = new CountDownLatch(1);
+    private volatile Thread decidedOn;
+
+    // a strategy that waits for the test before answering
+    private final ModelStrategy slowStrategy = new StrategyBitboard(model) {
+        @Override
+        public Cell getValidStartingPoint(Shape shape) {
+            decidedOn = Thread.currentThread();
+            started.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+                Thread.currentThread().interrupt();
+            }
+            return new Cell(4, 4);
+        }
+    };
+    private final StrategyWorker worker = new StrategyWorker(model, slowStrategy);
+
+    @AfterEach
+    void tearDown() {
+        worker.shutdown();
+    }
+
+    @Test
+    void testDecisionRunsOffAndReturnsOnTheEventDispatchThread() throws Exception {
+        CompletableFuture<Boolean> onEdt = worker.getValidStartingPoint(lineShape)
+                .thenApply(startingPoint -> SwingUtilities.isEventDispatchThread());
+        release.countDown();
+        assertTrue(onEdt.get(5, TimeUnit.SECONDS));
+        assertNotNull(decidedOn);
+        assertNotEquals("AWT-EventQueue-0", decidedOn.getName());
+        assertEquals(new Cell(4, 4), worker.getValidStartingPoint(lineShape).get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testDecisionForChangedBoardIsCancelled() throws Exception {
+        CompletableFuture<Cell> decision = worker.getValidStartingPoint(lineShape);
+        SwingUtilities.invokeAndWait(() -> model.place(new Piece(lineShape, new Cell(0, 0))));
+        release.countDown();
+        // the answer reaches the event dispatch thread after the board has changed
+        assertThrows(CancellationException.class, () -> decision.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testCancelStopsTheRunningSearch() throws Exception {
+        CompletableFuture<Cell> decision = worker.getValidStartingPoint(lineShape);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        worker.cancel();
+        assertTrue(decision.isCancelled());
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS), "Cancelling should interrupt the strategy.");
+    }
+
+    @Test
+    void testCancelledSearchFreesTheWorker() throws Exception {
+        // an MCTS search with a minute's budget, cancelled once it has started, then a quick second decision
+        ModelBitboard board = new ModelBitboard();
+        StrategyMcts mcts = new StrategyMcts(board, () -> List.of(lineShape, lineShape, lineShape),
+                StrategyMcts.Budget.time(60_000), 1, 7L);
+        CountDownLatch searching = new CountDownLatch(1);
+        ModelStrategy strategy = new StrategyBitboard(board) {
+            boolean first = true;
+
+            @Override
+            public Cell getValidStartingPoint(Shape shape) {
+                if (!first) return new Cell(1, 1);
+                first = false;
+                searching.countDown();
+                return mcts.getValidStartingPoint(shape);
+            }
+        };
+        StrategyWorker searchWorker = new StrategyWorker(board, strategy);
+        try {
+            searchWorker.getValidStartingPoint(lineShape);
+            assertTrue(searching.await(5, TimeUnit.SECONDS));
+            searchWorker.cancel();
+            assertEquals(new Cell(1, 1), searchWorker.getValidStartingPoint(lineShape).get(5, TimeUnit.SECONDS),
+                    "The next decision shouldn't wait for the cancelled search's budget.");
+        } finally {
+            searchWorker.shutdown();
+        }
+    }
+
+    @Test
+    void testNewDecisionCancelsPendingOne() {
+        CompletableFuture<Cell> first = worker.getValidStartingPoint(lineShape);
+        CompletableFuture<Cell> second = worker.getValidStartingPoint(lineShape);
+        assertTrue(first.isCancelled());
+        assertFalse(second.isCancelled());
+        release.countDown();
+    }
+}
@@ -0,0 +1,70 @@
+package blocks;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TranspositionTableTest {
+
+    @Test
+    void testStoreAndProbe() {
+        TranspositionTable table = new TranspositionTable(4);
+        table.store(12345L, -7, 42, 2, table.generation());
+        long entry = table.probe(12345L);
+        assertNotEquals(0L, entry);
+        assertEquals(-7, TranspositionTable.value(entry));
+        assertEquals(42, TranspositionTable.move(entry));
+        assertEquals(2, TranspositionTable.depth(entry));
+        assertEquals(table.generation(), TranspositionTable.generation(entry));
+        assertEquals(0L, table.probe(54321L), "An unknown key should miss.");
+        assertEquals(0.5, table.getHitRate());
+    }
+
+    @Test
+    void testDeeperEntryIsKeptOverShallowerOnes() {
+        TranspositionTable table = new TranspositionTable(1); // a single bucket
+        table.store(1L, 10, 0, 5, 1);
+        table.store(2L, 20, 0, 1, 1);
+        table.store(3L, 30, 0, 1, 1);
+        assertNotEquals(0L, table.probe(1L), "The deep entry should survive.");
+        assertEquals(0L, table.probe(2L), "The always-replace slot should hold the newest entry.");
+        assertNotEquals(0L, table.probe(3L));
+    }
+
+    @Test
+    void testNewGenerationReplacesOldEntries() {
+        TranspositionTable table = new TranspositionTable(1);
+        table.store(1L, 10, 0, 5, table.generation());
+        table.store(2L, 20, 0, 1, table.newGeneration());
+        assertEquals(0L, table.probe(1L), "Entries from an older generation should be replaced first.");
+        assertNotEquals(0L, table.probe(2L));
+    }
+
+    @Test
+    void testEntriesKeepTheirSearchesGeneration() {
+        TranspositionTable table = new TranspositionTable(4);
+        int first = table.newGeneration();
+        int second = table.newGeneration();
+        assertNotEquals(first, second, "Each search should get its own generation.");
+        table.store(1L, 10, 0, 2, first);
+        table.store(2L, 20, 0, 2, second);
+        assertEquals(first, TranspositionTable.generation(table.probe(1L)),
+                "Another search taking a generation should not change the first one's entries.");
+        assertEquals(second, TranspositionTable.generation(table.probe(2L)));
+    }
+
+    @Test
+    void testGenerationsSkipZero() {
+        TranspositionTable table = new TranspositionTable(4);
+        for (int i = 0; i < 600; i++) {
+            int generation = table.newGeneration();
+            assertTrue(generation >= 1 && generation <= 255);
+        }
+    }
+
+    @Test
+    void testMemoryFootprint() {
+        assertEquals(16L << 10, new TranspositionTable(10).getMemoryBytes());
+        assertEquals(1 << 16, TranspositionTable.ofMegabytes(1).getCapacity());
+    }
+}
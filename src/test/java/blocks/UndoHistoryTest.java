@@ -0,0 +1,50 @@
+package blocks;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UndoHistoryTest {
+
+    static BoardState state(int i) {
+        return new BoardState(i * 3L, -i, i * 10, -i);
+    }
+
+    @Test
+    void testStatesComeBackUnchanged() {
+        UndoHistory history = new UndoHistory();
+        BoardState[] states = {BoardState.empty, new BoardState(-1L, 0x1FFFFL, Integer.MAX_VALUE, 7), state(3)};
+        for (BoardState state : states) history.changing(state);
+        BoardState current = state(4);
+        for (int i = states.length - 1; i >= 0; i--) {
+            BoardState previous = history.undo(current);
+            assertEquals(states[i], previous);
+            current = previous;
+        }
+        assertNull(history.undo(current));
+        assertEquals(states[1], history.redo(current));
+    }
+
+    @Test
+    void testOldestStatesAreDroppedAtTheLimit() {
+        UndoHistory history = new UndoHistory(20);
+        for (int i = 0; i < 50; i++) history.changing(state(i));
+        BoardState current = state(50);
+        for (int i = 49; i >= 30; i--) {
+            current = history.undo(current);
+            assertEquals(state(i), current, "Undo " + (50 - i) + " should go back to state " + i + ".");
+        }
+        assertFalse(history.canUndo(), "Only the last 20 states should be kept.");
+        for (int i = 31; i <= 50; i++) {
+            current = history.redo(current);
+            assertEquals(state(i), current);
+        }
+        assertFalse(history.canRedo());
+
+        history.changing(current);
+        assertFalse(history.canRedo(), "A new move should end the redo.");
+        assertTrue(history.canUndo());
+        history.clear();
+        assertFalse(history.canUndo());
+    }
+}
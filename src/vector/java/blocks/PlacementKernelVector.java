@@ -0,0 +1,53 @@
+package blocks;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+// the PlacementKernel on jdk.incubator.vector, only loaded through PlacementKernel.vector()
+final class PlacementKernelVector extends PlacementKernel {
+    private static final VectorSpecies<Long> species = LongVector.SPECIES_PREFERRED;
+    // the same number of lanes as ints, to store the counts straight into the int[]
+    private static final VectorSpecies<Integer> countSpecies = VectorSpecies.of(int.class, VectorShape.forBitSize(species.vectorBitSize() / 2));
+
+    @Override
+    public void evaluate(long lo, long hi, Batch batch, int[] popCounts) {
+        int n = batch.size();
+        int bound = species.loopBound(n);
+        int i = 0;
+        for (; i < bound; i += species.length()) {
+            LongVector pieceLo = LongVector.fromArray(species, batch.lo(), i);
+            LongVector pieceHi = LongVector.fromArray(species, batch.hi(), i);
+            VectorMask<Long> legal = pieceLo.and(lo).or(pieceHi.and(hi)).compare(VectorOperators.EQ, 0L);
+            if (!legal.anyTrue()) {
+                for (int lane = 0; lane < species.length(); lane++) popCounts[i + lane] = -1;
+                continue;
+            }
+            LongVector newLo = pieceLo.or(lo);
+            LongVector newHi = pieceHi.or(hi);
+            LongVector pops = LongVector.zero(species);
+            // each region any lane touches against every lane, a region counts if that lane's piece touches it and it ends up full
+            long touched = LongVector.fromArray(species, batch.regions(), i).reduceLanes(VectorOperators.OR);
+            for (long bits = touched; bits != 0; bits &= bits - 1) {
+                int region = Long.numberOfTrailingZeros(bits);
+                long regionLo = ModelBitboard.regionLo[region];
+                long regionHi = ModelBitboard.regionHi[region];
+                VectorMask<Long> full = newLo.and(regionLo).compare(VectorOperators.EQ, regionLo)
+                        .and(newHi.and(regionHi).compare(VectorOperators.EQ, regionHi))
+                        .and(pieceLo.and(regionLo).or(pieceHi.and(regionHi)).compare(VectorOperators.NE, 0L));
+                pops = pops.add(1L, full);
+            }
+            ((IntVector) pops.blend(-1L, legal.not()).convertShape(VectorOperators.L2I, countSpecies, 0)).intoArray(popCounts, i);
+        }
+        // the tail that doesn't fill a vector
+        evaluate(lo, hi, batch, popCounts, i, n);
+    }
+
+    @Override
+    public String name() {
+        return "vector " + species.vectorBitSize() + "-bit";
+    }
+}
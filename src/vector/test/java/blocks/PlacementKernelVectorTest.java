@@ -0,0 +1,16 @@
+package blocks;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// only built by the vector profile, which adds the incubator module to the tests
+class PlacementKernelVectorTest {
+
+    @Test
+    void testVectorKernelMatchesModel() {
+        PlacementKernel vector = PlacementKernel.vector();
+        assertNotNull(vector, "jdk.incubator.vector should be available to the tests.");
+        PlacementKernelTest.checkAgainstModel(vector);
+    }
+}